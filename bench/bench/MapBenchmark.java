@@ -0,0 +1,40 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Setup phases, separately from the search: parsing an input (from memory, so disk I/O isn't measured),
+ * and building the map from a parsed problem (which runs tunnelDijkstra).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+
+    @Param({"beach", "island", "maze1", "original", "rooms", "swamp", "tunnels1", "tunnels2"})
+    public String maze;
+
+    private String input;
+    private Object problem;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        input = SearchApi.input("A*", "clockwise", "old-first", maze);
+        problem = SearchApi.parse(input);
+    }
+
+    @Benchmark
+    public Object parse() throws Throwable {
+        return SearchApi.parse(input);
+    }
+
+    @Benchmark
+    public Object buildMap() throws Throwable {
+        return SearchApi.map(problem);
+    }
+}
@@ -0,0 +1,79 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Bridge from the benchmarks to the search code.
+ * JMH only accepts benchmarks in a named package, and classes in the default package
+ * (where the search code lives) can't be imported from one, so the few entry points
+ * the benchmarks need are looked up once by reflection and called through method handles.
+ */
+final class SearchApi {
+
+    private static final String MAZE_DIR = "sample mazes";
+    private static final MethodHandle READ, MAP, ALGO, OUTPUT;
+
+    static {
+        try {
+            Class<?> problem = Class.forName("Problem"), map = Class.forName("Map");
+            Class<?> algo = Class.forName("SearchAlgo");
+            READ = handle(problem.getDeclaredMethod("read", BufferedReader.class));
+            MAP = handle(problem.getDeclaredMethod("map"));
+            ALGO = handle(problem.getDeclaredMethod("algo", map));
+            OUTPUT = handle(algo.getDeclaredMethod("output"));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private SearchApi(){}
+
+    private static MethodHandle handle(Method m) throws IllegalAccessException {
+        m.setAccessible(true);
+        return MethodHandles.lookup().unreflect(m);
+    }
+
+    /**
+     * Build the text of an input file for a maze from "sample mazes".
+     *
+     * @param algorithm Algorithm name, as in the first line of an input file.
+     * @param order     "clockwise" or "counter-clockwise".
+     * @param tieBreak  "old-first" or "new-first".
+     * @param maze      Maze file name, without ".txt".
+     * @return The input text.
+     */
+    static String input(String algorithm, String order, String tieBreak, String maze) throws IOException {
+        String board = Files.readString(Path.of(MAZE_DIR, maze + ".txt"));
+        return algorithm + "\n" + order + " " + tieBreak + "\nno time\nno open\n" + board;
+    }
+
+    /**
+     * Parse an input (Problem.read).
+     */
+    static Object parse(String input) throws Throwable {
+        return READ.invoke(new BufferedReader(new StringReader(input)));
+    }
+
+    /**
+     * Build the map of a parsed problem, including the tunnel precomputation (Problem.map).
+     */
+    static Object map(Object problem) throws Throwable {
+        return MAP.invoke(problem);
+    }
+
+    /**
+     * Create the algorithm and run the search (Problem.algo, then SearchAlgo.output).
+     *
+     * @return The output fields: path, number of nodes, max space, cost.
+     */
+    static String[] search(Object problem, Object map) throws Throwable {
+        return (String[]) OUTPUT.invoke(ALGO.invoke(problem, map));
+    }
+}
@@ -0,0 +1,45 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search phase only: the problem is parsed and the map is built once per trial,
+ * each invocation creates a fresh node store and algorithm and runs the search.
+ * (The map's lazily-filled heuristic table is warm after the first invocation.)
+ * Note: DFID is exponential in the path length on the larger mazes, restrict it with e.g. -p maze=maze1.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"BFS", "A*", "DFID", "IDA*", "DFBnB"})
+    public String algorithm;
+
+    @Param({"clockwise", "counter-clockwise"})
+    public String order;
+
+    @Param({"old-first", "new-first"})
+    public String tieBreak;
+
+    @Param({"beach", "island", "maze1", "original", "rooms", "swamp", "tunnels1", "tunnels2"})
+    public String maze;
+
+    private Object problem, map;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        problem = SearchApi.parse(SearchApi.input(algorithm, order, tieBreak, maze));
+        map = SearchApi.map(problem);
+    }
+
+    @Benchmark
+    public String[] search() throws Throwable {
+        return SearchApi.search(problem, map);
+    }
+}
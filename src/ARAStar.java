@@ -0,0 +1,181 @@
+import java.io.PrintStream;
+
+public class ARAStar extends SearchAlgo {
+
+    /**
+     * The heuristic weight, in tenths: the first, the step it's lowered by after each solution, and the last (1).
+     */
+    private static final int FIRST_WEIGHT = 30, WEIGHT_STEP = 5, LAST_WEIGHT = 10;
+    /**
+     * Number of expansions between checks of the time budget.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * The open list, ordered by the inflated f-value 10 * g + weight * h (weight in tenths), then old-first or new-first.
+     */
+    private NodeHeap open;
+    /**
+     * For each state: the node that reached it at the lowest cost so far, whichever list it's in.
+     * The states expanded in the current search, and those of them reached at a lower cost since (inconsistent).
+     */
+    private final NodeMap best = new NodeMap(), closed = new NodeMap(), inconsistent = new NodeMap();
+    private final long timeBudget;
+    private SolutionListener listener = null;
+    private int weight = FIRST_WEIGHT, goal = NodeStore.NONE;
+
+    /**
+     * Constructor.
+     *
+     * @param clockwise  order in which to create the next-step nodes.
+     * @param withTime   whether to print runtime or not.
+     * @param withOpen   whether to print current open list at every step.
+     * @param oldFirst   which node to prefer in case of equal f-value.
+     * @param timeBudget time after which to stop with the best path found so far, in nanoseconds (0 for none).
+     * @param map        the board to search.
+     * @param nodes      the node store.
+     * @param start      start node.
+     */
+    protected ARAStar(boolean clockwise, boolean withTime, boolean withOpen, boolean oldFirst, long timeBudget,
+                      Map map, NodeStore nodes, int start){
+        this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
+        this.oldFirst = oldFirst; this.map = map; this.nodes = nodes; this.start = start;
+        this.timeBudget = timeBudget > 0 ? timeBudget : Long.MAX_VALUE;
+        this.open = new NodeHeap(nodes, oldFirst);
+    }
+
+    /**
+     * Receive every improved solution while the search runs.
+     *
+     * @param listener The listener.
+     */
+    protected void setListener(SolutionListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Runs Anytime Repairing A*: a series of weighted A* searches, with the heuristic weight lowered
+     * from FIRST_WEIGHT to 1, each returning a path at most weight times the optimal cost.
+     * Each search reuses the previous one's state: only the states whose cost improved since they were expanded
+     * (the inconsistent ones) are searched again, with the open list.
+     * Every solution is reported to the listener with its suboptimality bound.
+     * The search ends with an optimal path (weight 1), or when the time budget runs out,
+     * with the best path found by then.
+     *
+     * @return A string representing the path, or "no path" if no path exists (or none was found in time).
+     */
+    @Override
+    protected String findPath() {
+        long startTime = System.nanoTime();
+        best.put(nodes.ID(start), start);
+        if (map.goal(nodes, start)) goal = start;
+        else addToOpenList(start);
+        while (true) {
+            boolean finished = improvePath(startTime);
+            if (goal != NodeStore.NONE && listener != null) {
+                listener.improved(nodes.getPath(goal), nodes.getCost(goal), bound(), System.nanoTime() - startTime);
+            }
+            if (!finished || weight == LAST_WEIGHT || (goal == NodeStore.NONE && open.isEmpty())) break;
+            // Lower the weight, and search again from the open and inconsistent states:
+            weight = Math.max(LAST_WEIGHT, weight - WEIGHT_STEP);
+            NodeHeap reordered = new NodeHeap(nodes, oldFirst);
+            inconsistent.forEach(n -> openList.put(nodes.ID(n), n));
+            openList.forEach(n -> reordered.add(n, key(n)));
+            open = reordered;
+            inconsistent.clear();
+            closed.clear();
+        }
+        return goal == NodeStore.NONE ? "no path" : getPath(goal);
+    }
+
+    /**
+     * One weighted A* search, until no open state could lead to a cheaper path than the best one at this weight.
+     *
+     * @param startTime When findPath started.
+     * @return False iff the time budget ran out.
+     */
+    private boolean improvePath(long startTime) {
+        int expansions = 0;
+        int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
+        while (!open.isEmpty() && (goal == NodeStore.NONE || open.peekF() < 10 * nodes.getCost(goal))) {
+            if (++expansions % CHECK_INTERVAL == 0 && System.nanoTime() - startTime > timeBudget) return false;
+            if (withOpen) printOpenList();  // Option for debugging.
+            int current = open.poll();
+            openList.remove(nodes.ID(current));
+            closed.put(nodes.ID(current), current);
+            nodes.counters().expanded();
+            traceExpansion(current, open.size());
+            for (int[] dir : directions) {
+                int next = map.move(nodes, current, dir);
+                if (next != NodeStore.NONE) relax(next);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keep a new node if it reaches its state at a lower cost than before.
+     */
+    private void relax(int next) {
+        long id = nodes.ID(next);
+        int old = best.get(id);
+        if (old != NodeStore.NONE && nodes.getCost(old) <= nodes.getCost(next)) {
+            nodes.counters().duplicate();
+            nodes.release(next);
+            return;
+        }
+        best.put(id, next);
+        if (map.goal(nodes, next)) {  // The search stops at G, so the goal is never expanded.
+            if (old != NodeStore.NONE) nodes.release(old);
+            if (goal == NodeStore.NONE || nodes.getCost(next) < nodes.getCost(goal)) goal = next;
+        }
+        else if (openList.containsKey(id)) {
+            open.replace(old, next, key(next));
+            openList.put(id, next);
+            nodes.release(old);  // Never expanded, so nothing points to it.
+        }
+        else if (closed.containsKey(id)) {
+            nodes.counters().reopened();  // By the next search.
+            if (inconsistent.containsKey(id)) nodes.release(inconsistent.get(id));  // Never expanded either.
+            inconsistent.put(id, next);
+        }
+        else addToOpenList(next);
+    }
+
+    /**
+     * Bound on the suboptimality of the current path: the weight,
+     * or better, its cost over the lowest f-value of a state that could still lead to a cheaper path.
+     */
+    private double bound() {
+        int[] lowest = {Integer.MAX_VALUE};
+        openList.forEach(n -> lowest[0] = Math.min(lowest[0], map.f(nodes, n)));
+        inconsistent.forEach(n -> lowest[0] = Math.min(lowest[0], map.f(nodes, n)));
+        if (lowest[0] >= nodes.getCost(goal)) return 1.0;
+        return Math.min(weight / 10.0, (double) nodes.getCost(goal) / lowest[0]);
+    }
+
+    /**
+     * The inflated f-value of a node, in tenths.
+     */
+    private int key(int n) {
+        int g = nodes.getCost(n);
+        return 10 * g + weight * (map.f(nodes, n) - g);
+    }
+
+    @Override
+    protected void addToOpenList(int n) {
+        open.add(n, key(n));
+        openList.put(nodes.ID(n), n);
+        maxSizeOfOpenList = Math.max(maxSizeOfOpenList, openList.size());
+    }
+
+    /**
+     * Prints open list, in the order the nodes would be removed.
+     */
+    @Override
+    protected void printOpenList(PrintStream out) {
+        out.print(open.size());
+        open.forEachInOrder(n -> out.print("  " + nodes.toString(n, true)));
+        out.println();
+    }
+}
@@ -1,33 +1,47 @@
-import java.util.PriorityQueue;
+import java.io.PrintStream;
 
 public class AStar extends BreadthFirstSearchAlgo {
 
     /**
-     * The open list (frontier), a priority queue.
+     * The open list (frontier), a priority queue (binary heap or bucket queue).
      * Sorted by f(n) first, then by old-first or new-first.
      */
-    private PriorityQueue<Node> priorityQueue = new PriorityQueue<>(nodeCompare);
+    private OpenQueue priorityQueue;
+    /**
+     * Whether to generate successors by jump point search (see Map.jump) instead of single moves.
+     */
+    private final boolean jumpPoints;
+    /**
+     * Upper bound on the cost of the path, if one is known (see HPAStar): nodes with a larger f are never opened.
+     */
+    private int bound = Integer.MAX_VALUE;
 
     /**
      * Constructor.
      *
-     * @param clockwise order in which to create the next-step nodes.
-     * @param withTime  whether to print runtime or not.
-     * @param withOpen  whether to print current open list at every step.
-     * @param oldFirst  which node to prefer in case of equal f-value.
-     * @param map       the board to search.
-     * @param start     start node.
+     * @param clockwise  order in which to create the next-step nodes.
+     * @param withTime   whether to print runtime or not.
+     * @param withOpen   whether to print current open list at every step.
+     * @param oldFirst   which node to prefer in case of equal f-value.
+     * @param buckets    whether to use a bucket queue instead of a binary heap for the open list.
+     * @param jumpPoints whether to use jump point search successors.
+     * @param map        the board to search.
+     * @param nodes      the node store.
+     * @param start      start node.
      */
     protected AStar(boolean clockwise, boolean withTime, boolean withOpen,
-                    boolean oldFirst, Map map, Node start){
+                    boolean oldFirst, boolean buckets, boolean jumpPoints, Map map, NodeStore nodes, int start){
         this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
-        this.oldFirst = oldFirst; this.map = map; this.start = start;
+        this.oldFirst = oldFirst; this.map = map; this.nodes = nodes; this.start = start;
+        this.jumpPoints = jumpPoints;
+        this.priorityQueue = buckets ? new BucketQueue(nodes, oldFirst) : new NodeHeap(nodes, oldFirst);
     }
 
     /**
      * Runs A* to find an optimal path from start to goal.
      * Uses a priority queue to store created nodes.
      * Ordered by f(n) and then old-first or new-first, ascending.
+     * A cheaper duplicate of an open node takes its place in the queue (decrease-key).
      *
      * @return A string representing the path, or "no path" if no path exists.
      */
@@ -36,42 +50,66 @@ public class AStar extends BreadthFirstSearchAlgo {
         addToOpenList(start);
         while (!priorityQueue.isEmpty()){
             if (withOpen) printOpenList();  // Option for debugging.
-            Node current = removeHeadFromOpenList();
-            if (current == null) return "no path";  // Safeguard.
-            if (map.goal(current)) {
-                pathCost = current.getCost();  // The cost of the path is the cost of reaching the current node.
+            int current = removeHeadFromOpenList();
+            if (current == NodeStore.NONE) return "no path";  // Safeguard.
+            if (map.goal(nodes, current)) {
+                pathCost = nodes.getCost(current);  // The cost of the path is the cost of reaching the current node.
                 return getPath(current);  // Return the path to the node
             }
             addToClosedList(current);
+            nodes.counters().expanded();
+            traceExpansion(current, priorityQueue.size());
             int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
             for (int[] dir : directions) {
-                Node next = map.move(current, dir);
-                if (next == null) continue;
+                int next = jumpPoints ? map.jump(nodes, current, dir) : map.move(nodes, current, dir);
+                if (next == NodeStore.NONE) continue;
+                if (map.f(nodes, next) > bound) {
+                    nodes.release(next);
+                    continue;
+                }
                 if (notInClosedList(next) && !inOpenList(next)){
                     addToOpenList(next);
                 }
                 else if (inOpenList(next)){
-                    Node oldNext = getFromOpenList(next.ID());
-                    if (map.f(next) < map.f(oldNext)){
-                        priorityQueue.remove(oldNext);
-                        priorityQueue.add(next);
+                    int oldNext = getFromOpenList(nodes.ID(next));
+                    int nextF = map.f(nodes, next);
+                    if (nextF < priorityQueue.f(oldNext)){
+                        priorityQueue.replace(oldNext, next, nextF);
+                        openList.put(nodes.ID(next), next);
+                        nodes.release(oldNext);  // Never expanded, so nothing points to it.
                     }
+                    else duplicate(next);
                 }
+                else duplicate(next);
             }
         }
         return "no path";
     }
 
+    private void duplicate(int n) {
+        nodes.counters().duplicate();
+        nodes.release(n);
+    }
+
     /**
-     * Adds node to open list (priority queue and hashMap).
+     * Set an upper bound on the cost of the path, to keep nodes that can't lead to a path within it out of the open list.
+     *
+     * @param bound The cost of a known path.
+     */
+    protected void setBound(int bound){
+        this.bound = bound;
+    }
+
+    /**
+     * Adds node to open list (priority queue and state table).
      * Updates maxSizeOfOpenList.
      *
      * @param n Node to add.
      */
     @Override
-    protected void addToOpenList(Node n) {
-        priorityQueue.add(n);
-        openList.put(n.ID(), n);
+    protected void addToOpenList(int n) {
+        priorityQueue.add(n, map.f(nodes, n));
+        openList.put(nodes.ID(n), n);
         maxSizeOfOpenList = Math.max(maxSizeOfOpenList, openList.size());
     }
 
@@ -82,10 +120,10 @@ public class AStar extends BreadthFirstSearchAlgo {
      * @return The first node in the priority queue.
      */
     @Override
-    protected Node removeHeadFromOpenList() {
-        Node n = priorityQueue.poll();
-        if (n == null) return null;
-        openList.remove(n.ID());
+    protected int removeHeadFromOpenList() {
+        int n = priorityQueue.poll();
+        if (n == NodeStore.NONE) return NodeStore.NONE;
+        openList.remove(nodes.ID(n));
         return n;
     }
 
@@ -94,21 +132,17 @@ public class AStar extends BreadthFirstSearchAlgo {
      *
      * @return The requested node.
      */
-    protected Node getFromOpenList(String ID){
+    protected int getFromOpenList(long ID){
         return openList.get(ID);
     }
 
     /**
-     * Prints open list - iterates over the internal array of the priority queue.
-     * Not sorted, but minimum Node is first.
+     * Prints open list, in the order the nodes would be removed.
      */
     @Override
-    protected void printOpenList() {
-        PriorityQueue<Node> tempPQ = new PriorityQueue<>(priorityQueue);
-        System.out.print(tempPQ.size());
-        while (!tempPQ.isEmpty()) {
-            System.out.print("  " + tempPQ.poll().toString(map));
-        }
-        System.out.println();
+    protected void printOpenList(PrintStream out) {
+        out.print(priorityQueue.size());
+        priorityQueue.forEachInOrder(n -> out.print("  " + nodes.toString(n, true)));
+        out.println();
     }
 }
@@ -1,11 +1,11 @@
-import java.util.*;
+import java.io.PrintStream;
 
 public class BFS extends BreadthFirstSearchAlgo {
 
     /**
-     * The open list (frontier), a queue.
+     * The open list (frontier), a queue of nodes.
      */
-    private ArrayDeque<Node> queue = new ArrayDeque<>();
+    private IntQueue queue = new IntQueue();
 
     /**
      * Constructor.
@@ -14,12 +14,13 @@ public class BFS extends BreadthFirstSearchAlgo {
      * @param withTime  whether to print runtime or not.
      * @param withOpen  whether to print current open list at every step.
      * @param map       the board to search.
+     * @param nodes     the node store.
      * @param start     start node.
      */
     protected BFS(boolean clockwise, boolean withTime, boolean withOpen,
-               Map map, Node start){
+               Map map, NodeStore nodes, int start){
         this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
-        this.map = map; this.start = start;
+        this.map = map; this.nodes = nodes; this.start = start;
     }
 
     /**
@@ -33,16 +34,23 @@ public class BFS extends BreadthFirstSearchAlgo {
         addToOpenList(start);
         while (!queue.isEmpty()) {
             if (withOpen) printOpenList();  // Option for debugging.
-            Node current = removeHeadFromOpenList();
-            if (current == null) return "no path";  // Safeguard.
+            int current = removeHeadFromOpenList();
+            if (current == NodeStore.NONE) return "no path";  // Safeguard.
             addToClosedList(current);
+            nodes.counters().expanded();
+            traceExpansion(current, queue.size());
             int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
             for (int[] dir : directions) {
-                Node next = map.move(current, dir);
-                if (next != null && notInClosedList(next) && !inOpenList(next)){
-                    if (map.goal(next)) return getPath(next);
+                int next = map.move(nodes, current, dir);
+                if (next == NodeStore.NONE) continue;
+                if (notInClosedList(next) && !inOpenList(next)){
+                    if (map.goal(nodes, next)) return getPath(next);
                     addToOpenList(next);
                 }
+                else {
+                    nodes.counters().duplicate();
+                    nodes.release(next);  // Duplicate, no longer needed.
+                }
             }
         }
         return "no path";
@@ -52,23 +60,23 @@ public class BFS extends BreadthFirstSearchAlgo {
      * Prints open list - iterates over queue.
      */
     @Override
-    protected void printOpenList(){
-        System.out.print(queue.size());
-        for (Node n : queue){
-            System.out.print("  " + n.toString());
+    protected void printOpenList(PrintStream out){
+        out.print(queue.size());
+        for (int i = 0; i < queue.size(); i++){
+            out.print("  " + nodes.toString(queue.get(i), false));
         }
-        System.out.println();
+        out.println();
     }
 
     /**
-     * Adds node to open list (queue and hashMap).
+     * Adds node to open list (queue and state table).
      *
      * @param n Node to add.
      */
     @Override
-    protected void addToOpenList(Node n){
+    protected void addToOpenList(int n){
         queue.add(n);
-        openList.put(n.ID(), n);
+        openList.put(nodes.ID(n), n);
         maxSizeOfOpenList = Math.max(maxSizeOfOpenList, openList.size());
     }
 
@@ -78,10 +86,10 @@ public class BFS extends BreadthFirstSearchAlgo {
      * @return The first node in queue.
      */
     @Override
-    protected Node removeHeadFromOpenList(){
-        Node n = queue.poll();
-        if (n == null) return null;
-        openList.remove(n.ID());
+    protected int removeHeadFromOpenList(){
+        if (queue.isEmpty()) return NodeStore.NONE;
+        int n = queue.poll();
+        openList.remove(nodes.ID(n));
         return n;
     }
 }
@@ -0,0 +1,66 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class BatchRunner {
+
+    private static final String DEFAULT_DIR = "Sample inputs";
+
+    /**
+     * Parallel version of TestEx1: runs every input file in a directory
+     * (e.g. the files made by CreateTests) on a work-stealing pool that uses all cores.
+     * Each file is written to "output <file name>", exactly as the sequential run writes it.
+     *
+     * @param args Optional: the directory of input files (default "Sample inputs").
+     */
+    public static void main(String[] args) {
+        String dir = args.length > 0 ? args[0] : DEFAULT_DIR;
+        File[] txtFiles = new File(dir).listFiles((d, name) -> name.endsWith(".txt"));
+        if (txtFiles == null || txtFiles.length == 0) {
+            System.out.println("No .txt files found in: " + dir);
+            return;
+        }
+        Arrays.sort(txtFiles);
+
+        ForkJoinPool pool = new ForkJoinPool();
+        long startTime = System.nanoTime();
+        List<Future<String>> results = new ArrayList<>();
+        for (File file : txtFiles) {
+            results.add(pool.submit(() -> runOne(dir, file.getName())));
+        }
+        // Report in file order, whatever order the runs finished in:
+        int failed = 0;
+        for (Future<String> result : results) {
+            try {
+                String line = result.get();
+                if (line.endsWith("failed")) failed++;
+                System.out.println(line);
+            } catch (InterruptedException | ExecutionException e) {
+                failed++;
+                System.err.println("Run crashed: " + e.getCause());
+            }
+        }
+        pool.shutdown();
+        double durationSeconds = (double) (System.nanoTime() - startTime) / 1_000_000_000.0;
+        System.out.printf("Ran %d files (%d failed) on %d threads in %.3f seconds%n",
+                txtFiles.length, failed, pool.getParallelism(), durationSeconds);
+    }
+
+    /**
+     * Run a single input file.
+     *
+     * @param dir      Directory of the file.
+     * @param fileName Name of the file.
+     * @return A report line for the file.
+     */
+    private static String runOne(String dir, String fileName) {
+        long startTime = System.nanoTime();
+        boolean ok = Ex1.runAlgo(dir + "/" + fileName, "output " + fileName);
+        double durationSeconds = (double) (System.nanoTime() - startTime) / 1_000_000_000.0;
+        return String.format("%s: %.3f seconds%s", fileName, durationSeconds, ok ? "" : " - failed");
+    }
+}
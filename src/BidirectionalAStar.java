@@ -0,0 +1,206 @@
+import java.io.PrintStream;
+
+public class BidirectionalAStar extends SearchAlgo {
+
+    /**
+     * Forward search: from start, ordered by f(n) = g(n) + heuristic to goal.
+     * Backward search: from the goal, ordered by f(n) = (cost from n to goal) + reverse heuristic from start.
+     * A state here is (x, y, supplied, direction of the move that produced it), because the direction
+     * decides which moves are legal next (no immediate backtracking), so two half-paths that meet at
+     * the same state always join into a legal path.
+     * Each open list is a priority queue plus a state table; each closed list is a state table.
+     */
+    private final NodeHeap forwardQueue, backwardQueue;
+    private final NodeMap forwardOpen = openList, forwardClosed = new NodeMap(),
+            backwardOpen = new NodeMap(), backwardClosed = new NodeMap();
+    /**
+     * Cost of the best path found so far (through a state reached by both searches), and that state's two nodes.
+     */
+    private int bestCost = Integer.MAX_VALUE, meetForward = NodeStore.NONE, meetBackward = NodeStore.NONE;
+    private final int[] previous = new int[20];
+
+    /**
+     * Constructor.
+     *
+     * @param clockwise order in which to create the next-step nodes.
+     * @param withTime  whether to print runtime or not.
+     * @param withOpen  whether to print current open lists at every step.
+     * @param oldFirst  which node to prefer in case of equal f-value.
+     * @param map       the board to search.
+     * @param nodes     the node store.
+     * @param start     start node.
+     */
+    protected BidirectionalAStar(boolean clockwise, boolean withTime, boolean withOpen,
+                                 boolean oldFirst, Map map, NodeStore nodes, int start){
+        this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
+        this.oldFirst = oldFirst; this.map = map; this.nodes = nodes; this.start = start;
+        this.forwardQueue = new NodeHeap(nodes, oldFirst);
+        this.backwardQueue = new NodeHeap(nodes, oldFirst);
+    }
+
+    /**
+     * Runs bidirectional A* to find an optimal path from start to goal.
+     * Each step expands the head of the smaller open list.
+     * Whenever a state is reached by one search and is already in the other search's open or closed list,
+     * the path through it is a candidate.
+     * Stops when the best candidate costs no more than the larger of the two lowest f-values:
+     * every path that hasn't been found yet passes through an open node of each search,
+     * so it costs at least that much.
+     *
+     * @return A string representing the path, or "no path" if no path exists.
+     */
+    @Override
+    protected String findPath() {
+        addToOpenList(start);
+        // The backward search starts from every state at the goal:
+        int[] roots = new int[20];
+        int count = map.goalStates(nodes, roots);
+        for (int i = 0; i < count; i++) relax(roots[i], false);
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            if (bestCost <= Math.max(forwardQueue.peekF(), backwardQueue.peekF())) break;
+            if (withOpen) printOpenList();  // Option for debugging.
+            if (forwardQueue.size() <= backwardQueue.size()) expandForward();
+            else expandBackward();
+        }
+        if (meetForward == NodeStore.NONE) return "no path";
+        pathCost = bestCost;
+        return joinPaths(meetForward, meetBackward);
+    }
+
+    /**
+     * Expand the head of the forward open list: move it to the closed list and generate its successors.
+     */
+    private void expandForward() {
+        int current = forwardQueue.poll();
+        long key = nodes.directedID(current);
+        forwardOpen.remove(key);
+        forwardClosed.put(key, current);
+        nodes.counters().expanded();
+        traceExpansion(key, nodes.getCost(current), f(current, true), forwardQueue.size() + backwardQueue.size());
+        int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
+        for (int[] dir : directions) {
+            int next = map.move(nodes, current, dir);
+            if (next != NodeStore.NONE) relax(next, true);
+        }
+    }
+
+    /**
+     * Expand the head of the backward open list: move it to the closed list and generate its predecessors.
+     */
+    private void expandBackward() {
+        int current = backwardQueue.poll();
+        long key = nodes.directedID(current);
+        backwardOpen.remove(key);
+        backwardClosed.put(key, current);
+        nodes.counters().expanded();
+        traceExpansion(key, nodes.getCost(current), f(current, false), forwardQueue.size() + backwardQueue.size());
+        int count = map.predecessors(nodes, current, previous);
+        for (int i = 0; i < count; i++) relax(previous[i], false);
+    }
+
+    /**
+     * Handle a newly generated node: drop it if its state is closed or already open at a lower cost,
+     * else add it to the open list (replacing a more expensive open copy), and check for a meeting.
+     *
+     * @param next    The new node.
+     * @param forward Which search generated it.
+     */
+    private void relax(int next, boolean forward) {
+        NodeMap open = forward ? forwardOpen : backwardOpen, closed = forward ? forwardClosed : backwardClosed;
+        NodeHeap queue = forward ? forwardQueue : backwardQueue;
+        long key = nodes.directedID(next);
+        if (closed.containsKey(key)) {
+            nodes.counters().duplicate();
+            nodes.release(next);
+            return;
+        }
+        int old = open.get(key);
+        if (old != NodeStore.NONE) {
+            if (nodes.getCost(next) >= nodes.getCost(old)) {
+                nodes.counters().duplicate();
+                nodes.release(next);
+                return;
+            }
+            queue.replace(old, next, f(next, forward));
+            open.put(key, next);
+            nodes.release(old);  // Never expanded, so nothing points to it.
+        }
+        else if (forward) addToOpenList(next);
+        else addBackward(next);
+        // Check if the other search already reached this state:
+        NodeMap otherOpen = forward ? backwardOpen : forwardOpen, otherClosed = forward ? backwardClosed : forwardClosed;
+        int other = otherOpen.get(key);
+        if (other == NodeStore.NONE) other = otherClosed.get(key);
+        if (other != NodeStore.NONE && nodes.getCost(next) + nodes.getCost(other) < bestCost) {
+            bestCost = nodes.getCost(next) + nodes.getCost(other);
+            meetForward = forward ? next : other;
+            meetBackward = forward ? other : next;
+        }
+    }
+
+    /**
+     * f-value of a node: forward uses the heuristic to goal, backward uses the heuristic from start.
+     */
+    private int f(int n, boolean forward) {
+        if (forward) return map.f(nodes, n);
+        int h = nodes.h(n);
+        if (h == -1) {
+            h = map.reverseHeuristic(nodes.x(n), nodes.y(n));
+            nodes.setH(n, h);
+        }
+        return nodes.getCost(n) + h;
+    }
+
+    /**
+     * Adds node to the forward open list (priority queue and state table).
+     * Updates maxSizeOfOpenList (counting both open lists).
+     *
+     * @param n Node to add.
+     */
+    @Override
+    protected void addToOpenList(int n) {
+        forwardQueue.add(n, f(n, true));
+        forwardOpen.put(nodes.directedID(n), n);
+        maxSizeOfOpenList = Math.max(maxSizeOfOpenList, forwardOpen.size() + backwardOpen.size());
+    }
+
+    /**
+     * Adds node to the backward open list (priority queue and state table).
+     *
+     * @param n Node to add.
+     */
+    private void addBackward(int n) {
+        backwardQueue.add(n, f(n, false));
+        backwardOpen.put(nodes.directedID(n), n);
+        maxSizeOfOpenList = Math.max(maxSizeOfOpenList, forwardOpen.size() + backwardOpen.size());
+    }
+
+    /**
+     * Path through the meeting state: the forward path to it (by parents),
+     * then the moves of the backward nodes after it (by parents, towards the goal).
+     *
+     * @param forward  Forward node of the meeting state.
+     * @param backward Backward node of the meeting state.
+     * @return The full path.
+     */
+    private String joinPaths(int forward, int backward) {
+        StringBuilder path = new StringBuilder(nodes.getPath(forward));
+        for (int n = backward; nodes.parent(n) != NodeStore.NONE; n = nodes.parent(n)) {
+            if (!path.isEmpty()) path.append('-');
+            path.append(NodeStore.dirName(nodes.getDir(nodes.parent(n))));
+        }
+        return path.toString();
+    }
+
+    /**
+     * Prints both open lists, in the order the nodes would be removed.
+     */
+    @Override
+    protected void printOpenList(PrintStream out) {
+        out.print("forward " + forwardQueue.size());
+        forwardQueue.forEachInOrder(n -> out.print("  " + nodes.toString(n, true)));
+        out.print("  backward " + backwardQueue.size());
+        backwardQueue.forEachInOrder(n -> out.print("  " + nodes.toString(n, false)));
+        out.println();
+    }
+}
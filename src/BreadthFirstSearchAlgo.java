@@ -1,26 +1,24 @@
-import java.util.HashMap;
-
 public abstract class BreadthFirstSearchAlgo extends SearchAlgo {
 
     /**
-     * The closed list (explored set), a HashMap.
+     * The closed list (explored set), keyed by packed state key.
      */
-    protected HashMap<String, Node> closedList = new HashMap<>();
+    protected NodeMap closedList = new NodeMap();
 
     /**
      * Remove and return head node from open list.
      *
      * @return Head node from open list.
      */
-    protected abstract Node removeHeadFromOpenList();
+    protected abstract int removeHeadFromOpenList();
 
     /**
-     * Add node to closed list (the hashMap).
+     * Add node to closed list.
      *
      * @param n Node to add.
      */
-    protected void addToClosedList(Node n){
-        closedList.put(n.ID(), n);
+    protected void addToClosedList(int n){
+        closedList.put(nodes.ID(n), n);
     }
 
     /**
@@ -28,7 +26,7 @@ public abstract class BreadthFirstSearchAlgo extends SearchAlgo {
      *
      * @return True iff location (x,y) is NOT in the closed list.
      */
-    protected boolean notInClosedList(Node n){
-        return !closedList.containsKey(n.ID());
+    protected boolean notInClosedList(int n){
+        return !closedList.containsKey(nodes.ID(n));
     }
 }
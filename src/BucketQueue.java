@@ -0,0 +1,130 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Bucket (Dial) priority queue of nodes, an alternative A* open list.
+ * Move costs and the heuristic are small integers, so f-values are too:
+ * there is one bucket per f-value, and push, pop and decrease-key are O(1)
+ * (plus skipping empty buckets when looking for the next non-empty one).
+ * Nodes are added in creation order, so within a bucket FIFO order is old-first
+ * and LIFO order is new-first, the same tie-breaking as the binary heap.
+ * Each bucket is a doubly linked list through per-node next/prev arrays.
+ */
+public class BucketQueue implements OpenQueue {
+
+    private static final int NONE = NodeStore.NONE;
+    private final NodeStore store;
+    private final boolean oldFirst;
+    private int[] heads = new int[64], tails = new int[64];
+    private int[] next = new int[1024], prev = new int[1024], fs = new int[1024];
+    private int size = 0, minBucket = Integer.MAX_VALUE;
+
+    /**
+     * Constructor.
+     *
+     * @param store    the nodes (for their counters).
+     * @param oldFirst which node to prefer in case of equal f-value.
+     */
+    protected BucketQueue(NodeStore store, boolean oldFirst){
+        this.store = store;
+        this.oldFirst = oldFirst;
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    @Override
+    public int f(int n){
+        return fs[n];
+    }
+
+    @Override
+    public int peekF(){
+        if (size == 0) return Integer.MAX_VALUE;
+        while (heads[minBucket] == NONE) minBucket++;
+        return minBucket;
+    }
+
+    @Override
+    public void add(int n, int f){
+        ensureNode(n);
+        ensureBucket(f);
+        fs[n] = f;
+        next[n] = NONE;
+        prev[n] = tails[f];
+        if (tails[f] == NONE) heads[f] = n;
+        else next[tails[f]] = n;
+        tails[f] = n;
+        size++;
+        minBucket = Math.min(minBucket, f);
+        store.counters().heapOperation();
+    }
+
+    @Override
+    public int poll(){
+        if (size == 0) return NONE;
+        while (heads[minBucket] == NONE) minBucket++;
+        int n = oldFirst ? heads[minBucket] : tails[minBucket];
+        unlink(n);
+        store.counters().heapOperation();
+        return n;
+    }
+
+    /**
+     * Decrease-key: unlink the old node from its bucket and append the new one to its own bucket.
+     * The new node is the newest one created, so appending keeps the bucket in creation order.
+     */
+    @Override
+    public void replace(int old, int n, int f){
+        unlink(old);
+        add(n, f);
+    }
+
+    @Override
+    public void forEachInOrder(IntConsumer action){
+        if (size == 0) return;
+        for (int f = minBucket; f < heads.length; f++) {
+            if (oldFirst) {
+                for (int n = heads[f]; n != NONE; n = next[n]) action.accept(n);
+            }
+            else {
+                for (int n = tails[f]; n != NONE; n = prev[n]) action.accept(n);
+            }
+        }
+    }
+
+    private void unlink(int n){
+        int f = fs[n];
+        if (prev[n] == NONE) heads[f] = next[n];
+        else next[prev[n]] = next[n];
+        if (next[n] == NONE) tails[f] = prev[n];
+        else prev[next[n]] = prev[n];
+        size--;
+    }
+
+    private void ensureNode(int n){
+        if (n < next.length) return;
+        int length = Math.max(n + 1, next.length << 1);
+        next = Arrays.copyOf(next, length);
+        prev = Arrays.copyOf(prev, length);
+        fs = Arrays.copyOf(fs, length);
+    }
+
+    private void ensureBucket(int f){
+        if (f < heads.length) return;
+        int oldLength = heads.length, length = Math.max(f + 1, oldLength << 1);
+        heads = Arrays.copyOf(heads, length);
+        tails = Arrays.copyOf(tails, length);
+        Arrays.fill(heads, oldLength, length, NONE);
+        Arrays.fill(tails, oldLength, length, NONE);
+    }
+}
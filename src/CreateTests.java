@@ -3,7 +3,7 @@ import java.io.*;
 public class CreateTests {
 
     public static void main(String[] args) {
-        String[] algorithms = {"BFS", "A*", "DFID", "IDA*", "DFBnB"};
+        String[] algorithms = {"BFS", "A*", "BiA*", "HPA*", "DFID", "IDA*", "DFBnB", "ARA*", "LPA*"};
         String[] orders = {"clockwise", "counter-clockwise"};
         String[] tieBreakers = {"old-first", "new-first"};
 
@@ -29,7 +29,8 @@ public class CreateTests {
 
             for (String algo : algorithms) {
                 for (String order : orders) {
-                    boolean needsTieBreaker = algo.equals("A*") || algo.equals("DFBnB");
+                    boolean needsTieBreaker = algo.equals("A*") || algo.equals("BiA*") || algo.equals("HPA*")
+                            || algo.equals("DFBnB") || algo.equals("ARA*");
                     if (needsTieBreaker) {
                         for (String tie : tieBreakers) {
                             generateFile(algo, order, tie, mazeNameClean, mazeData);
@@ -37,6 +38,9 @@ public class CreateTests {
                     } else {
                         generateFile(algo, order, null, mazeNameClean, mazeData);
                     }
+                    if (algo.equals("LPA*")) {  // Also repair the path after edits (see Problem.edit).
+                        generateFile(algo, order, null, mazeNameClean + " edited", mazeData + edits(mazeData));
+                    }
                     count++;
                 }
             }
@@ -48,7 +52,11 @@ public class CreateTests {
         String fileName;
         String line1;
         if (algo.equals("A*")) algo = "AStar";
+        if (algo.equals("BiA*")) algo = "BiAStar";
+        if (algo.equals("HPA*")) algo = "HPAStar";
         if (algo.equals("IDA*")) algo = "IDAStar";
+        if (algo.equals("ARA*")) algo = "ARAStar";
+        if (algo.equals("LPA*")) algo = "LPAStar";
         if (tie != null) {
             fileName = String.format("%s %s %s %s.txt", algo, order, tie, mazeName);
             line1 = order + " " + tie;
@@ -57,7 +65,11 @@ public class CreateTests {
             line1 = order;
         }
         if (algo.equals("AStar")) algo = "A*";
+        if (algo.equals("BiAStar")) algo = "BiA*";
+        if (algo.equals("HPAStar")) algo = "HPA*";
         if (algo.equals("IDAStar")) algo = "IDA*";
+        if (algo.equals("ARAStar")) algo = "ARA*";
+        if (algo.equals("LPAStar")) algo = "LPA*";
         StringBuilder content = new StringBuilder();
         content.append(algo).append("\n");          // Line 0
         content.append(line1).append("\n");         // Line 1
@@ -73,6 +85,24 @@ public class CreateTests {
         }
     }
 
+    /**
+     * Edit lines for a maze: walls on the middle row, at a quarter, half and three quarters of its width
+     * (where the cell can be changed).
+     */
+    private static String edits(String mazeData) {
+        String[] lines = mazeData.split("\n");
+        String[] size = lines[0].trim().split("x");
+        int rows = Integer.parseInt(size[0].trim()), cols = Integer.parseInt(size[1].trim());
+        int row = rows / 2 + 1;
+        StringBuilder edits = new StringBuilder();
+        for (int col = cols / 4; col <= 3 * cols / 4; col += Math.max(1, cols / 4)) {
+            if (row < lines.length && col < lines[row].length() && "-*~^".indexOf(lines[row].charAt(col)) >= 0) {
+                edits.append("set ").append(row).append(',').append(col + 1).append(" #\n");
+            }
+        }
+        return edits.toString();
+    }
+
     private static String readMazeFile(File file) {
         StringBuilder content = new StringBuilder();
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
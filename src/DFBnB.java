@@ -1,57 +1,97 @@
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.PrintStream;
 
 public class DFBnB extends IterativeDepthFirstSearchAlgo{
 
+    /**
+     * Weight of the heuristic in the weighted A* that finds the first solution.
+     */
+    private static final int INCUMBENT_WEIGHT = 3;
+    /**
+     * Number of expansions between checks of the time budget.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+    private final long timeBudget;
+    private SolutionListener listener = null;
+
     /**
      * Constructor.
      *
      * @param clockwise order in which to create the next-step nodes.
      * @param withTime  whether to print runtime or not.
      * @param withOpen  whether to print current open list at every step.
-     * @param oldFirst  which node to prefer in case of equal f-value.
-     * @param map       the board to search.
-     * @param start     start node.
+     * @param oldFirst   which node to prefer in case of equal f-value.
+     * @param timeBudget time after which to stop with the best path found so far, in nanoseconds (0 for none).
+     * @param map        the board to search.
+     * @param nodes      the node store.
+     * @param start      start node.
      */
-    protected DFBnB(boolean clockwise, boolean withTime, boolean withOpen, boolean oldFirst,
-                    Map map, Node start){
+    protected DFBnB(boolean clockwise, boolean withTime, boolean withOpen, boolean oldFirst, long timeBudget,
+                    Map map, NodeStore nodes, int start){
         this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
-        this.oldFirst = oldFirst; this.map = map; this.start = start;
+        this.oldFirst = oldFirst; this.map = map; this.nodes = nodes; this.start = start;
+        this.timeBudget = timeBudget > 0 ? timeBudget : Long.MAX_VALUE;
         this.maxF = maxF(map);
     }
 
+    /**
+     * Receive every improved solution while the search runs (anytime search).
+     *
+     * @param listener The listener.
+     */
+    protected void setListener(SolutionListener listener){
+        this.listener = listener;
+    }
+
     /**
      * Run DFBnB to find an optimal path from start to goal.
-     * Using a stack, runs DFS with increasingly shorter cutoffs.
+     * The first solution (the incumbent) comes from a quick weighted A*, and its cost is the first cutoff,
+     * so pruning starts right away. Using a stack, runs DFS with increasingly shorter cutoffs.
+     * This is an anytime search: every cheaper solution is reported to the listener, if there is one,
+     * and when the time budget runs out the search stops with the cheapest path found so far.
      *
-     * @return A string representing the path, or "no path" if no path exists.
+     * @return A string representing the path, or "no path" if no path exists (or none was found in time).
      */
     @Override
     protected String findPath() {
+        long startTime = System.nanoTime();
         String result = "no path";  // Initially, we assume no path
         int t = maxF;               // Set initial cutoff to max.
+        int incumbent = incumbent();
+        if (incumbent != NodeStore.NONE) {
+            t = nodes.getCost(incumbent);
+            result = getPath(incumbent);
+            improved(result, t, startTime);
+        }
+        int[] neighbors = new int[Ex1.clockwiseOrder.length];
+        int expansions = 0;
         addToOpenList(start);
         while (!stack.empty()){
             if (withOpen) printOpenList();  // Option for debugging.
-            Node current = stack.pop();
+            int current = stack.pop();
             /*
             * If we popped a node that is already marked 'out',
             * it means we already expanded it, and pruned all of its branches.
             */
-            if (isOut(current)) openList.remove(current.ID());
+            if (isOut(current)) {
+                openList.remove(nodes.ID(current));
+                nodes.release(current);
+            }
             else{  // When we expand a node, mark it 'out':
+                if (++expansions % CHECK_INTERVAL == 0 && System.nanoTime() - startTime > timeBudget) return result;
                 setOut(current);
                 stack.push(current);
+                nodes.counters().expanded();
+                traceExpansion(current, stack.size());
                 /*
                  * Get the list of legal neighbors, sorted by f-value and creation time.
                  * Iterate over it; when we reach one that has a higher f-value than the current cutoff limit,
                  * we want to remove that one and all the ones after it (because they all have a higher f-value).
                  */
-                ArrayList<Node> neighbors = neighbors(current);
+                int count = neighbors(current, neighbors);
                 int removeFromIndex = -1;
-                for (int i = 0; i < neighbors.size(); i++) {
-                    Node next = neighbors.get(i);
-                    if (map.f(next) >= t) {
+                for (int i = 0; i < count; i++) {
+                    int next = neighbors[i];
+                    if (map.f(nodes, next) >= t) {
                         removeFromIndex = i;
                         break;
                     }
@@ -63,70 +103,136 @@ public class DFBnB extends IterativeDepthFirstSearchAlgo{
                      * If the new one is cheaper, we remove the old from stack and open list,
                      * and later the new will be added with all the neighbors.
                      */
-                    else if (openList.containsKey(next.ID())){
-                        Node oldNext = openList.get(next.ID());
-                        if (isOut(oldNext)) neighbors.remove(i--);
-                        else if (map.f(oldNext) <= map.f(next)) {
-                            neighbors.remove(i--);
+                    else if (openList.containsKey(nodes.ID(next))){
+                        int oldNext = openList.get(nodes.ID(next));
+                        if (isOut(oldNext) || map.f(nodes, oldNext) <= map.f(nodes, next)) {
+                            nodes.counters().duplicate();
+                            nodes.release(next);
+                            System.arraycopy(neighbors, i + 1, neighbors, i, count - i - 1);
+                            count--; i--;
                         }
                         else {
-                            openList.remove(oldNext.ID());
+                            openList.remove(nodes.ID(oldNext));
                             stack.remove(oldNext);
+                            nodes.release(oldNext);
                         }
                     }
                     /*
                      * If the node isn't already in the open list, check if it's the goal.
                      * If yes, update the result and remove the neighbors after it.
                      */
-                    else if (map.goal(next)) {
-                        t = map.f(next);
+                    else if (map.goal(nodes, next)) {
+                        t = map.f(nodes, next);
                         result = getPath(next);
+                        improved(result, t, startTime);
                         removeFromIndex = i;
                         break;
                     }
                 }
                 // Remove irrelevant neighbors, then reverse the list and insert into the stack:
                 if (removeFromIndex != -1) {
-                    neighbors.subList(removeFromIndex, neighbors.size()).clear();
+                    for (int i = removeFromIndex; i < count; i++) nodes.release(neighbors[i]);
+                    count = removeFromIndex;
                 }
-                Collections.reverse(neighbors);
-                for (Node node : neighbors){
-                    addToOpenList(node);
+                for (int i = count - 1; i >= 0; i--){
+                    addToOpenList(neighbors[i]);
                 }
             }
         }
         return result;
     }
 
+    /**
+     * Find a first solution quickly: weighted A* (f = g + INCUMBENT_WEIGHT * h),
+     * where a state is never generated twice.
+     * Releases its nodes, except the path to the goal.
+     *
+     * @return The goal node, or NodeStore.NONE if no path was found.
+     */
+    private int incumbent(){
+        NodeHeap open = new NodeHeap(nodes, oldFirst);
+        NodeMap seen = new NodeMap();
+        open.add(start, weighted(start));
+        seen.put(nodes.ID(start), start);
+        int goal = NodeStore.NONE;
+        int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (map.goal(nodes, current)) {
+                goal = current;
+                break;
+            }
+            nodes.counters().expanded();
+            for (int[] dir : directions) {
+                int next = map.move(nodes, current, dir);
+                if (next == NodeStore.NONE) continue;
+                if (seen.containsKey(nodes.ID(next))) {
+                    nodes.counters().duplicate();
+                    nodes.release(next);
+                }
+                else {
+                    seen.put(nodes.ID(next), next);
+                    open.add(next, weighted(next));
+                }
+            }
+        }
+        if (goal != NodeStore.NONE) {
+            for (int n = goal; n != NodeStore.NONE; n = nodes.parent(n)) seen.remove(nodes.ID(n));  // Keep the path.
+        }
+        else seen.remove(nodes.ID(start));
+        seen.forEach(nodes::release);
+        return goal;
+    }
+
+    private int weighted(int n){
+        return nodes.getCost(n) + INCUMBENT_WEIGHT * (map.f(nodes, n) - nodes.getCost(n));
+    }
+
+    /**
+     * Report a cheaper solution to the listener, with the heuristic of the start (a lower bound
+     * on the optimal cost) as the base of its suboptimality bound.
+     */
+    private void improved(String path, int cost, long startTime){
+        if (listener == null) return;
+        int lowerBound = Math.max(1, map.heuristic(nodes.x(start), nodes.y(start), nodes.isSupplied(start)));
+        listener.improved(path, cost, Math.max(1.0, (double) cost / lowerBound), System.nanoTime() - startTime);
+    }
+
     /**
      * Create list of neighbor states, sorted by f-value and "old-first" or "new-first".
+     * (Insertion sort - there are at most nine neighbors.)
      *
-     * @param n Current node.
-     * @return A sorted list of the relevant neighbors.
+     * @param n         Current node.
+     * @param neighbors Array to fill with the neighbors.
+     * @return The number of neighbors.
      */
-    protected ArrayList<Node> neighbors(Node n){
-        ArrayList<Node> neighbors = new ArrayList<>();
+    protected int neighbors(int n, int[] neighbors){
+        int count = 0;
         int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
         for (int[] dir : directions){
-            Node next = map.move(n, dir);
-            if (next != null) {  // If the move is legal:
-                neighbors.add(next);
+            int next = map.move(nodes, n, dir);
+            if (next != NodeStore.NONE) {  // If the move is legal:
+                int i = count++;
+                while (i > 0 && compareNodes(neighbors[i - 1], next) > 0) {
+                    neighbors[i] = neighbors[i - 1];
+                    i--;
+                }
+                neighbors[i] = next;
             }
         }
-        neighbors.sort(nodeCompare);
-        return neighbors;
+        return count;
     }
 
     /**
-     * Adds node to open list (stack and hashMap).
+     * Adds node to open list (stack and state table).
      * Updates maxSizeOfOpenList.
      *
      * @param n Node to add.
      */
     @Override
-    protected void addToOpenList(Node n) {
+    protected void addToOpenList(int n) {
         stack.push(n);
-        openList.put(n.ID(), n);
+        openList.put(nodes.ID(n), n);
         maxSizeOfOpenList = Math.max(maxSizeOfOpenList, openList.size());
     }
 
@@ -134,11 +240,11 @@ public class DFBnB extends IterativeDepthFirstSearchAlgo{
      * Prints open list - iterates over the stack.
      */
     @Override
-    protected void printOpenList(){
-        System.out.print(stack.size());
-        for (Node n : stack){
-            System.out.print("  " + n.toString(map) + isOut(n));
+    protected void printOpenList(PrintStream out){
+        out.print(stack.size());
+        for (int i = 0; i < stack.size(); i++){
+            out.print("  " + nodes.toString(stack.get(i), true) + isOut(stack.get(i)));
         }
-        System.out.println();
+        out.println();
     }
 }
@@ -1,7 +1,27 @@
-import java.util.HashMap;
+import java.io.PrintStream;
 
 public class DFID extends SearchAlgo {
 
+    /**
+     * Result of one depth-limited search.
+     */
+    private enum Status { FOUND, CUTOFF, FAILED }
+
+    /**
+     * The path of the depth-limited search (one frame per depth, like the call stack of a recursive DFS):
+     * the node at each depth, and the index of the next direction to try from it.
+     */
+    private final IntStack path = new IntStack(), nextDirs = new IntStack();
+    /**
+     * The shallowest depth each state was reached at in the current iteration.
+     * Kept between iterations, and cleared.
+     */
+    private final LongIntMap shallowest = new LongIntMap();
+    /**
+     * The goal node, when a search returns FOUND.
+     */
+    private int goal = NodeStore.NONE;
+
     /**
      * Constructor.
      *
@@ -9,94 +29,114 @@ public class DFID extends SearchAlgo {
      * @param withTime  whether to print runtime or not.
      * @param withOpen  whether to print current open list at every step.
      * @param map       the board to search.
+     * @param nodes     the node store.
      * @param start     start node.
      */
-    protected DFID(boolean clockwise, boolean withTime, boolean withOpen, Map map, Node start){
+    protected DFID(boolean clockwise, boolean withTime, boolean withOpen, Map map, NodeStore nodes, int start){
         this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
-        this.map = map; this.start = start;
+        this.map = map; this.nodes = nodes; this.start = start;
     }
 
     /**
      * Driver loop of the algorithm.
-     * Calls the actual DFS method.
+     * Runs depth-limited searches with growing limits, until one finds the goal,
+     * or one ends without being cut off by its limit (so a deeper limit can't find more).
      *
      * @return A string representing the path, or "no path" if no path exists.
      */
     @Override
     protected String findPath() {
-        for (int limit = 1; limit < Integer.MAX_VALUE; limit++) {
-            System.out.println("limit: " + limit);
-            openList = new HashMap<>();  // Reset the open list between rounds of DFS.
-            String result = limitedDFS(start, limit);  // Run DFS and get the result.
-            // If DFS found the goal before cutoff, that's the shortest path:
-            if (!result.equals("cutoff")) return result;
+        for (int limit = 0; limit < Integer.MAX_VALUE; limit++) {
+            SearchEvents.Iteration event = SearchEvents.beginIteration();
+            Status status = limitedDFS(limit);
+            SearchEvents.end(event, "DFID", limit + 1, limit, nodesCreated(), status == Status.FOUND);
+            if (status == Status.FOUND) return getPath(goal);  // Found before cutoff, so it's the shortest path.
+            if (status == Status.FAILED) break;
         }
-        return "no path";  // If max depth was reached with no path returned, there is no path.
+        return "no path";
     }
 
     /**
-     * Actual DFS method, recursive implementation.
+     * Depth-limited DFS, on an explicit stack (so a deep limit can't overflow the call stack).
+     * The stack holds one frame per depth, and the successors of a node are created one at a time,
+     * so it holds only the current path, as the recursion did.
+     * When every direction of the node on top was tried, its whole subtree is done and it is released.
+     * A state reached again at the same or a greater depth in the iteration is pruned:
+     * its first visit had at least as much of the limit left to search with.
      *
-     * @param current The current node.
-     * @param limit The cutoff limit.
-     * @return A string representing the path, or "cutoff" if no path was found before reaching cutoff depth.
+     * @param limit The depth limit.
+     * @return FOUND (the goal node is in goal), CUTOFF if a node at the limit wasn't expanded,
+     *         or FAILED if the whole space within the limit was searched.
      */
-    private String limitedDFS(Node current, int limit) {
-        // If the current node is the goal, return the path to it and update the cost.
-        if (map.goal(current)) {
-            pathCost = current.getCost();
-            return current.getPath();
-        }
-        if (limit == 0) return "cutoff";  // If limit was reached.
-        // Else, expand the current node:
-        addToOpenList(current);
+    private Status limitedDFS(int limit) {
         boolean cutoff = false;
+        shallowest.clear();
+        nodes.reset(start);     // Reset start - not supplied, no direction, no parent, not out.
+        shallowest.put(nodes.ID(start), 0);
+        if (map.goal(nodes, start)) {
+            goal = start;
+            return Status.FOUND;
+        }
+        if (limit == 0) return Status.CUTOFF;
+        addToOpenList(start);
         int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
-        for (int[] dir : directions) {
-            Node next = map.move(current, dir);
-            if (next != null) {
-                // If next node is valid, recurse from it:
-                String result = limitedDFS(next, limit - 1);
-                // If the path from that node was cut off, we can ignore that option:
-                if (result.equals("cutoff")) cutoff = true;
-                // If the result isn't "cutoff" or "fail", it's a path:
-                else if (!result.equals("fail")) return result;
+        while (!path.empty()) {
+            int depth = path.size() - 1, current = path.get(depth), d = nextDirs.pop();
+            if (d == directions.length) {
+                path.pop();
+                if (current != start) nodes.release(current);  // Its whole subtree is done.
+                continue;
+            }
+            nextDirs.push(d + 1);
+            int next = map.move(nodes, current, directions[d]);
+            if (next == NodeStore.NONE) continue;
+            int seen = shallowest.get(nodes.ID(next));
+            if (seen != LongIntMap.ABSENT && seen <= depth + 1) {
+                nodes.counters().duplicate();
+                nodes.release(next);
+                continue;
+            }
+            shallowest.put(nodes.ID(next), depth + 1);
+            if (map.goal(nodes, next)) {
+                goal = next;
+                path.clear();
+                nextDirs.clear();
+                return Status.FOUND;
+            }
+            if (depth + 1 == limit) {
+                cutoff = true;
+                nodes.release(next);
             }
+            else addToOpenList(next);
         }
-        /*
-         * If we finished the branch without finding a path, remove it.
-         * This frees up the space.
-         */
-        openList.remove(current.ID());
-        if (withOpen) printOpenList();  // Option for debugging
-        /*
-         * Return status: "cutoff" if we stopped because of depth cutoff,
-         * or "fail" if we ran out of where to go:
-         */
-        return cutoff ? "cutoff" : "fail";
+        return cutoff ? Status.CUTOFF : Status.FAILED;
     }
 
     /**
-     * Adds node to open list (hashMap).
+     * Adds node to open list (the path, as the deepest frame), and expands it.
      * Updates maxSizeOfOpenList.
      *
      * @param n Node to add.
      */
     @Override
-    protected void addToOpenList(Node n) {
-        openList.put(n.ID(), n);
-        maxSizeOfOpenList = Math.max(maxSizeOfOpenList, openList.size());
+    protected void addToOpenList(int n) {
+        path.push(n);
+        nextDirs.push(0);
+        maxSizeOfOpenList = Math.max(maxSizeOfOpenList, path.size());
+        if (withOpen) printOpenList();  // Option for debugging.
+        nodes.counters().expanded();
+        traceExpansion(n, path.size());
     }
 
     /**
-     * Prints open list.
+     * Prints open list - iterates over the path.
      */
     @Override
-    protected void printOpenList() {
-        System.out.print(openList.size());
-        for (Node n : openList.values()){
-            System.out.print("  " + n.toString());
+    protected void printOpenList(PrintStream out) {
+        out.print(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            out.print("  " + nodes.toString(path.get(i), false));
         }
-        System.out.println();
+        out.println();
     }
 }
@@ -0,0 +1,156 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * The exact cost to the goal from every state of a map, found by one backward Dijkstra from the goal
+ * (over Map.predecessors, so with the same costs and move rules as the forward searches).
+ * A state here includes the direction of the move that produced it, because that decides which moves
+ * are legal next (no immediate backtracking).
+ * With the field, the optimal path from any start is found by greedy descent,
+ * in time proportional to the length of the path.
+ * Fields are cached by map fingerprint (board and goal, not start), so later runs on the same map reuse them.
+ */
+public class DistanceField {
+
+    /**
+     * Distances per cell (index y * cols + x): 10 direction codes (NO_DIR unused), for unsupplied then supplied.
+     */
+    private static final int SLOTS = 20;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int CACHE_SIZE = 4;
+    private static final LinkedHashMap<Long, DistanceField> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int[] dist;
+    private final int cols;
+    private int maxSizeOfOpenList = 0, nodesCreated;
+
+    /**
+     * Run the backward Dijkstra.
+     *
+     * @param map   The map.
+     * @param nodes The node store to search with.
+     * @throws IllegalArgumentException If the board is too large for a distance field.
+     */
+    private DistanceField(Map map, NodeStore nodes){
+        if ((long) map.rows() * map.cols() * SLOTS > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board too large for a distance field.");
+        }
+        this.cols = map.cols();
+        this.dist = new int[map.rows() * map.cols() * SLOTS];
+        Arrays.fill(dist, UNREACHABLE);
+        int createdBefore = nodes.numberOfNodesCreated();
+        NodeHeap open = new NodeHeap(nodes, true);
+        int[] buffer = new int[20];
+        int count = map.goalStates(nodes, buffer);
+        for (int i = 0; i < count; i++) offer(nodes, open, buffer[i]);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (nodes.getCost(current) == dist[index(nodes, current)]) {  // Else a cheaper copy was expanded.
+                nodes.counters().expanded();
+                count = map.predecessors(nodes, current, buffer);
+                for (int i = 0; i < count; i++) offer(nodes, open, buffer[i]);
+            }
+            nodes.release(current);  // Only distances are kept, not the nodes.
+        }
+        this.nodesCreated = nodes.numberOfNodesCreated() - createdBefore;
+    }
+
+    /**
+     * Keep a new node if it improves the distance of its state.
+     */
+    private void offer(NodeStore nodes, NodeHeap open, int n){
+        int i = index(nodes, n);
+        if (nodes.getCost(n) < dist[i]) {
+            dist[i] = nodes.getCost(n);
+            open.add(n, nodes.getCost(n));
+            maxSizeOfOpenList = Math.max(maxSizeOfOpenList, open.size());
+        }
+        else {
+            nodes.counters().duplicate();
+            nodes.release(n);
+        }
+    }
+
+    private int index(NodeStore nodes, int n){
+        int cell = nodes.y(n) * cols + nodes.x(n);
+        return cell * SLOTS + (nodes.isSupplied(n) ? 10 : 0) + nodes.getDir(n);
+    }
+
+    /**
+     * The cached distance field of a map.
+     *
+     * @param map The map.
+     * @return The field, or null if it isn't in the cache.
+     */
+    protected static DistanceField cached(Map map){
+        synchronized (cache) {
+            return cache.get(map.fingerprint());
+        }
+    }
+
+    /**
+     * Compute the distance field of a map, and cache it.
+     *
+     * @param map   The map.
+     * @param nodes The node store to compute the field with.
+     * @return The field.
+     * @throws IllegalArgumentException If the board is too large for a distance field.
+     */
+    protected static DistanceField compute(Map map, NodeStore nodes){
+        DistanceField field = new DistanceField(map, nodes);
+        synchronized (cache) {
+            cache.put(map.fingerprint(), field);
+            if (cache.size() > CACHE_SIZE) cache.remove(cache.keySet().iterator().next());  // Least recently used.
+        }
+        return field;
+    }
+
+    /**
+     * Largest open list of the Dijkstra that computed the field.
+     */
+    protected int maxSizeOfOpenList(){
+        return maxSizeOfOpenList;
+    }
+
+    /**
+     * Number of nodes the Dijkstra that computed the field created.
+     */
+    protected int nodesCreated(){
+        return nodesCreated;
+    }
+
+    /**
+     * Find an optimal path by greedy descent: from each node, move to the first successor (in expansion order)
+     * with the lowest move cost + distance, until the goal is reached.
+     *
+     * @param map        The map.
+     * @param nodes      The node store.
+     * @param start      The start node.
+     * @param directions The expansion order.
+     * @return The goal node at the end of the path, or NodeStore.NONE if the goal can't be reached.
+     */
+    protected int descend(Map map, NodeStore nodes, int start, int[][] directions){
+        int current = start, remaining = UNREACHABLE;
+        while (!map.goal(nodes, current)) {
+            int best = NodeStore.NONE;
+            long bestDistance = UNREACHABLE;
+            nodes.counters().expanded();
+            for (int[] dir : directions) {
+                int next = map.move(nodes, current, dir);
+                if (next == NodeStore.NONE) continue;
+                long distance = (long) nodes.getCost(next) + dist[index(nodes, next)];
+                if (distance < bestDistance) {
+                    if (best != NodeStore.NONE) nodes.release(best);
+                    best = next;
+                    bestDistance = distance;
+                }
+                else nodes.release(next);
+            }
+            if (best == NodeStore.NONE) return NodeStore.NONE;
+            if (dist[index(nodes, best)] >= remaining) return NodeStore.NONE;  // Safeguard: always get closer.
+            remaining = dist[index(nodes, best)];
+            current = best;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,61 @@
+import java.io.PrintStream;
+
+public class DistanceFieldSearch extends SearchAlgo {
+
+    /**
+     * Nodes created computing the field, if it came from the cache (else they are in the node store).
+     */
+    private int cachedFieldNodes = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param clockwise order in which to create the next-step nodes.
+     * @param withTime  whether to print runtime or not.
+     * @param withOpen  whether to print current open list at every step (there is none here).
+     * @param map       the board to search.
+     * @param nodes     the node store.
+     * @param start     start node.
+     */
+    protected DistanceFieldSearch(boolean clockwise, boolean withTime, boolean withOpen,
+                                  Map map, NodeStore nodes, int start){
+        this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
+        this.map = map; this.nodes = nodes; this.start = start;
+    }
+
+    /**
+     * Finds an optimal path by greedy descent on the goal's distance field (see DistanceField).
+     * The field is computed on the first run on a map and goal, and reused by later runs with any start.
+     * The number of nodes and max space always include the computation of the field,
+     * even when it came from the cache, so the output doesn't depend on which runs came before.
+     *
+     * @return A string representing the path, or "no path" if no path exists.
+     */
+    @Override
+    protected String findPath() {
+        DistanceField field = DistanceField.cached(map);
+        if (field != null) cachedFieldNodes = field.nodesCreated();
+        else field = DistanceField.compute(map, nodes);
+        maxSizeOfOpenList = field.maxSizeOfOpenList();
+        int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
+        int goal = field.descend(map, nodes, start, directions);
+        if (goal == NodeStore.NONE) return "no path";
+        pathCost = nodes.getCost(goal);
+        return getPath(goal);
+    }
+
+    @Override
+    protected int nodesCreated(){
+        return super.nodesCreated() + cachedFieldNodes;
+    }
+
+    @Override
+    protected void addToOpenList(int n) {
+        // No open list: the descent only follows the field.
+    }
+
+    @Override
+    protected void printOpenList(PrintStream out) {
+        // No open list.
+    }
+}
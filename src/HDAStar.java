@@ -0,0 +1,323 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class HDAStar extends SearchAlgo {
+
+    /**
+     * Messages per batch sent to another thread, and expansions between sending the batches.
+     */
+    private static final int BATCH_SIZE = 64, EXPANSIONS_PER_ROUND = 64;
+    /**
+     * How long an idle thread sleeps between looks at its inbox.
+     */
+    private static final long IDLE_NANOS = 20_000;
+    /**
+     * Ints per message: x, y, cost, direction and supplied, and the parent's node.
+     * A batch ends with the sender, in whose store the parents are.
+     */
+    private static final int MESSAGE_INTS = 5;
+    private final Worker[] workers;
+    /**
+     * Number of threads that are working, plus messages sent and not yet processed.
+     * When it reaches 0 no thread can get more work, so the search is over.
+     */
+    private final AtomicLong pending;
+    private volatile boolean finished = false;
+    /**
+     * Cost of the best path found so far, its goal node and the thread that holds it.
+     */
+    private volatile int incumbent = Integer.MAX_VALUE;
+    private int incumbentThread = NodeStore.NONE, incumbentNode = NodeStore.NONE;
+    private volatile Throwable failure = null;
+
+    /**
+     * Constructor.
+     *
+     * @param clockwise order in which to create the next-step nodes.
+     * @param withTime  whether to print runtime or not.
+     * @param withOpen  whether to print current open list at every step (not supported, see printOpenList).
+     * @param oldFirst  which node to prefer in case of equal f-value.
+     * @param threads   number of threads.
+     * @param map       the board to search.
+     * @param nodes     the node store.
+     * @param start     start node.
+     */
+    protected HDAStar(boolean clockwise, boolean withTime, boolean withOpen, boolean oldFirst, int threads,
+                      Map map, NodeStore nodes, int start){
+        this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
+        this.oldFirst = oldFirst; this.map = map; this.nodes = nodes; this.start = start;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) workers[i] = new Worker(i);
+        this.pending = new AtomicLong(threads);
+    }
+
+    /**
+     * Runs hash-distributed A* (HDA*) to find an optimal path from start to goal.
+     * Every state has an owner thread, chosen by hashing its key, which keeps it in its own open and closed lists:
+     * a thread expands its best open node, keeps the successors it owns,
+     * and sends the others to their owners in batches, through lock-free queues.
+     * The open lists aren't ordered globally, so a thread may reach one of its closed states at a lower cost
+     * (it is then opened again), and the first path found may not be optimal:
+     * each path found is an incumbent, and the search goes on until no thread has an open node
+     * with a lower f-value and no message is on its way (see pending).
+     *
+     * @return A string representing the path, or "no path" if no path exists.
+     */
+    @Override
+    protected String findPath() {
+        workers[owner(nodes.ID(start))].open(nodes.x(start), nodes.y(start));
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(workers[i], "HDA*-" + i);
+            threads[i].start();
+        }
+        try {
+            for (Thread thread : threads) thread.join();
+        } catch (InterruptedException e) {
+            finished = true;
+            Thread.currentThread().interrupt();
+            return "no path";
+        }
+        if (failure != null) throw new IllegalStateException("HDA* thread failed.", failure);
+        for (Worker w : workers) maxSizeOfOpenList += w.maxOpen;  // Each open list at its largest.
+        if (incumbentNode == NodeStore.NONE) return "no path";
+        pathCost = incumbent;
+        return path(incumbentThread, incumbentNode);
+    }
+
+    /**
+     * The owner thread of a state.
+     */
+    private int owner(long id){
+        return (int) (((id * 0x9E3779B97F4A7C15L) >>> 33) % workers.length);
+    }
+
+    /**
+     * Record a path, if it's cheaper than the incumbent.
+     */
+    private synchronized void solution(int thread, int node, int cost){
+        if (cost >= incumbent) return;
+        incumbentThread = thread;
+        incumbentNode = node;
+        incumbent = cost;
+    }
+
+    /**
+     * The path to a node, by parents across the threads' stores.
+     */
+    private String path(int thread, int n){
+        StringBuilder path = new StringBuilder();
+        String separator = "";
+        IntStack steps = new IntStack();
+        while (workers[thread].nodes.parent(n) != NodeStore.NONE) {
+            steps.push(workers[thread].nodes.getDir(n));
+            int parentThread = workers[thread].parentThreads[n];
+            n = workers[thread].nodes.parent(n);
+            thread = parentThread;
+        }
+        while (!steps.empty()) {
+            path.append(separator).append(NodeStore.dirName((byte) steps.pop()));
+            separator = "-";
+        }
+        return path.toString();
+    }
+
+    /**
+     * The nodes of every thread, but not the copies made by the owners of the nodes sent to them.
+     */
+    @Override
+    protected int nodesCreated() {
+        int count = super.nodesCreated();
+        for (Worker w : workers) count += w.nodes.numberOfNodesCreated() - w.copies;
+        return count;
+    }
+
+    /**
+     * The counters of every thread.
+     */
+    @Override
+    protected void addCounters(SearchCounters total) {
+        super.addCounters(total);
+        for (Worker w : workers) total.add(w.nodes.counters());
+    }
+
+    @Override
+    protected void addToOpenList(int n) {
+        // Each thread has its own open list (see Worker).
+    }
+
+    @Override
+    protected void printOpenList(PrintStream out) {
+        // The open lists of the threads change concurrently, so there is no open list to print.
+    }
+
+    /**
+     * One thread of the search, with the states it owns.
+     */
+    private final class Worker implements Runnable {
+
+        private final int id;
+        private final NodeStore nodes = new NodeStore(map);
+        private final NodeHeap open = new NodeHeap(nodes, oldFirst);
+        /**
+         * The open and closed lists: the cheapest node of each state this thread owns.
+         * A node is open iff it is in the heap.
+         */
+        private final NodeMap best = new NodeMap();
+        /**
+         * The thread of each node's parent (the parent's node is the node's parent, in that thread's store).
+         */
+        private int[] parentThreads = new int[64];
+        private final ConcurrentLinkedQueue<int[]> inbox = new ConcurrentLinkedQueue<>();
+        private final int[][] outboxes = new int[workers.length][];
+        private final int[] outboxSizes = new int[workers.length];
+        /**
+         * Nodes copied from messages (created by another thread), and the largest open list.
+         */
+        private int copies = 0, maxOpen = 0;
+
+        private Worker(int id){
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            try {
+                work();
+            } catch (Throwable e) {
+                failure = e;
+                finished = true;
+            }
+        }
+
+        /**
+         * Receive, expand, send, until the search is over.
+         * A thread with nothing to expand and no messages is idle (not counted in pending) until it gets one,
+         * and sleeps meanwhile instead of spinning, so it doesn't take a core from the threads that are working.
+         */
+        private void work() {
+            int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
+            while (!finished) {
+                receive();
+                for (int i = 0; i < EXPANSIONS_PER_ROUND && !open.isEmpty() && open.peekF() < incumbent; i++) {
+                    int current = open.poll();
+                    if (map.goal(nodes, current)) {
+                        solution(id, current, nodes.getCost(current));  // The goal is never expanded.
+                        continue;
+                    }
+                    nodes.counters().expanded();
+                    for (int[] dir : directions) {
+                        int next = map.move(nodes, current, dir);
+                        if (next != NodeStore.NONE) route(next);
+                    }
+                }
+                sendAll();
+                // With more threads than cores, keeps a thread from running far ahead on high f-values:
+                Thread.yield();
+                if (open.isEmpty() || open.peekF() >= incumbent) {
+                    if (pending.decrementAndGet() == 0) finished = true;  // Idle.
+                    while (!finished && inbox.isEmpty()) LockSupport.parkNanos(IDLE_NANOS);
+                    if (!finished) pending.incrementAndGet();  // Working again, before the messages are counted out.
+                }
+            }
+        }
+
+        /**
+         * Keep a successor if this thread owns its state, or send it to its owner.
+         */
+        private void route(int next) {
+            int owner = owner(nodes.ID(next));
+            if (owner == id) {
+                add(next, id);
+                return;
+            }
+            if (outboxes[owner] == null) outboxes[owner] = new int[BATCH_SIZE * MESSAGE_INTS];
+            int[] outbox = outboxes[owner];
+            int i = outboxSizes[owner] * MESSAGE_INTS;
+            outbox[i] = nodes.x(next); outbox[i + 1] = nodes.y(next); outbox[i + 2] = nodes.getCost(next);
+            outbox[i + 3] = nodes.getDir(next) << 1 | (nodes.isSupplied(next) ? 1 : 0);
+            outbox[i + 4] = nodes.parent(next);
+            nodes.release(next);
+            if (++outboxSizes[owner] == BATCH_SIZE) send(owner);
+        }
+
+        private void sendAll() {
+            for (int owner = 0; owner < workers.length; owner++) {
+                if (outboxSizes[owner] > 0) send(owner);
+            }
+        }
+
+        /**
+         * Send a batch of messages. They are counted in pending before they can be received.
+         */
+        private void send(int owner) {
+            int count = outboxSizes[owner];
+            int[] batch = Arrays.copyOf(outboxes[owner], count * MESSAGE_INTS + 1);
+            batch[count * MESSAGE_INTS] = id;  // The sender, whose store has the parents.
+            pending.addAndGet(count);
+            workers[owner].inbox.add(batch);
+            outboxSizes[owner] = 0;
+        }
+
+        /**
+         * Add the nodes sent to this thread.
+         */
+        private void receive() {
+            for (int[] batch = inbox.poll(); batch != null; batch = inbox.poll()) {
+                int count = batch.length / MESSAGE_INTS, sender = batch[batch.length - 1];
+                for (int i = 0; i < batch.length - 1; i += MESSAGE_INTS) {
+                    int n = nodes.newNode(batch[i], batch[i + 1], batch[i + 2], (byte) (batch[i + 3] >> 1),
+                            (batch[i + 3] & 1) != 0, batch[i + 4]);
+                    copies++;
+                    add(n, sender);
+                }
+                pending.addAndGet(-count);
+            }
+        }
+
+        /**
+         * Add a node of a state this thread owns, if it is cheaper than the state's best node.
+         * A closed state reached at a lower cost is opened again.
+         *
+         * @param n            The node, in this thread's store.
+         * @param parentThread The thread of its parent.
+         */
+        private void add(int n, int parentThread) {
+            long id = nodes.ID(n);
+            int old = best.get(id);
+            if (old != NodeStore.NONE && nodes.getCost(old) <= nodes.getCost(n)) {
+                nodes.counters().duplicate();
+                nodes.release(n);
+                return;
+            }
+            if (map.f(nodes, n) >= incumbent) {
+                nodes.release(n);
+                return;
+            }
+            if (n >= parentThreads.length) {
+                parentThreads = Arrays.copyOf(parentThreads, Math.max(n + 1, parentThreads.length << 1));
+            }
+            parentThreads[n] = parentThread;
+            best.put(id, n);
+            if (old != NodeStore.NONE && nodes.heapIndex(old) >= 0) {
+                open.replace(old, n, map.f(nodes, n));
+                nodes.release(old);  // Never expanded, so nothing points to it.
+            }
+            else {
+                if (old != NodeStore.NONE) nodes.counters().reopened();  // Closed, reached at a lower cost.
+                open.add(n, map.f(nodes, n));
+            }
+            maxOpen = Math.max(maxOpen, open.size());
+        }
+
+        /**
+         * Open the start node (before the threads start).
+         */
+        private void open(int x, int y) {
+            add(nodes.newStart(x, y), id);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.PrintStream;
+
+public class HPAStar extends SearchAlgo {
+
+    /**
+     * Whether to try to improve the refined path with a bounded A* on the whole map (see findPath).
+     */
+    private final boolean exact;
+
+    /**
+     * Constructor.
+     *
+     * @param clockwise order in which to create the next-step nodes.
+     * @param withTime  whether to print runtime or not.
+     * @param withOpen  whether to print current open list at every step (not supported, see printOpenList).
+     * @param oldFirst  which node to prefer in case of equal f-value.
+     * @param exact     whether to try to improve the refined path (exact refinement).
+     * @param map       the board to search.
+     * @param nodes     the node store.
+     * @param start     start node.
+     */
+    protected HPAStar(boolean clockwise, boolean withTime, boolean withOpen, boolean oldFirst, boolean exact,
+                      Map map, NodeStore nodes, int start){
+        this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
+        this.oldFirst = oldFirst; this.map = map; this.nodes = nodes; this.start = start;
+        this.exact = exact;
+    }
+
+    /**
+     * Hierarchical pathfinding: an A* on the abstract graph of the map (see Hierarchy) finds the abstract path,
+     * a list of waypoints (entrances between clusters and tunnel entrances) from start to goal,
+     * and the path is refined lazily, one waypoint at a time: a small A* from the end of the path so far
+     * to the next waypoint, only in the clusters of the two.
+     * The abstract distances ignore the backtrack rule, so a refinement may fail, and is then retried on the whole map.
+     * The refined path is near-optimal. With exact refinement, its cost is the bound of an A* on the whole map
+     * (see AStar.setBound), whose path is returned instead if it finds one (its closed list ignores directions,
+     * so it may miss every path within the bound, and then the refined path is kept).
+     * If the abstract search or a refinement finds no path, the answer comes from an A* on the whole map.
+     *
+     * @return A string representing the path, or "no path" if no path exists.
+     */
+    @Override
+    protected String findPath() {
+        Hierarchy hierarchy = Hierarchy.of(map);
+        int bound = Integer.MAX_VALUE, refined = NodeStore.NONE;
+        int goal = abstractSearch(hierarchy);
+        if (goal != NodeStore.NONE) {
+            IntStack waypoints = new IntStack();
+            for (int n = goal; n != start; n = nodes.parent(n)) waypoints.push(n);
+            int current = start;
+            while (!waypoints.empty() && current != NodeStore.NONE && !map.goal(nodes, current)) {
+                int waypoint = waypoints.pop();
+                int next = refine(hierarchy, current, waypoint, true);
+                current = next != NodeStore.NONE ? next : refine(hierarchy, current, waypoint, false);
+            }
+            if (current != NodeStore.NONE && map.goal(nodes, current)) {
+                if (!exact) return getPath(current);
+                bound = nodes.getCost(current);
+                refined = current;
+            }
+        }
+        AStar aStar = new AStar(clockwise, false, false, oldFirst, false, false, map, nodes, start);
+        aStar.setBound(bound);
+        String path = aStar.findPath();
+        maxSizeOfOpenList = Math.max(maxSizeOfOpenList, aStar.maxSizeOfOpenList);
+        if (path.equals("no path") && refined != NodeStore.NONE) return getPath(refined);
+        pathCost = aStar.pathCost;
+        return path;
+    }
+
+    /**
+     * A* on the abstract graph, from the start to the goal vertex.
+     * Abstract states are represented by nodes (with no direction), whose parents give the abstract path.
+     *
+     * @param hierarchy The abstract graph.
+     * @return The node of the goal vertex, or NodeStore.NONE if the abstract graph has no path.
+     */
+    private int abstractSearch(Hierarchy hierarchy) {
+        NodeHeap open = new NodeHeap(nodes, oldFirst);
+        NodeMap closed = new NodeMap();
+        int startVertex = hierarchy.vertexAt(nodes.x(start), nodes.y(start));
+        int[] inter = new int[20];
+        open.add(start, map.f(nodes, start));
+        openList.put(nodes.ID(start), start);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            openList.remove(nodes.ID(current));
+            int x = nodes.x(current), y = nodes.y(current), vertex = hierarchy.vertexAt(x, y);
+            if (vertex == hierarchy.goalVertex()) return current;
+            closed.put(nodes.ID(current), current);
+            nodes.counters().expanded();
+            int[] edges;
+            int interCount = 0;
+            if (current == start && startVertex == NodeStore.NONE) {
+                edges = hierarchy.edgesFrom(x, y, nodes.isSupplied(current));
+            }
+            else {
+                int state = vertex * 2 + (nodes.isSupplied(current) ? 1 : 0);
+                edges = hierarchy.intraEdges(state);
+                interCount = hierarchy.interEdges(state, inter);
+            }
+            for (int i = 0; i < edges.length + interCount; i += 2) {
+                int target = i < edges.length ? edges[i] : inter[i - edges.length];
+                int cost = i < edges.length ? edges[i + 1] : inter[i - edges.length + 1];
+                int v = target >> 1;
+                int next = nodes.newNode(hierarchy.x(v), hierarchy.y(v), nodes.getCost(current) + cost,
+                        NodeStore.NO_DIR, (target & 1) != 0, current);
+                long id = nodes.ID(next);
+                if (closed.containsKey(id)) duplicate(next);
+                else if (!openList.containsKey(id)) {
+                    open.add(next, map.f(nodes, next));
+                    openList.put(id, next);
+                }
+                else {
+                    int oldNext = openList.get(id);
+                    int nextF = map.f(nodes, next);
+                    if (nextF < open.f(oldNext)) {
+                        open.replace(oldNext, next, nextF);
+                        openList.put(id, next);
+                        nodes.release(oldNext);  // Never expanded, so nothing points to it.
+                    }
+                    else duplicate(next);
+                }
+            }
+            maxSizeOfOpenList = Math.max(maxSizeOfOpenList, open.size());
+        }
+        return NodeStore.NONE;
+    }
+
+    /**
+     * Refine one abstract edge: A* (by the chebyshev distance to the waypoint) from the end of the path so far
+     * to a state at the waypoint, supplied if the waypoint is.
+     * Stops early if it reaches the goal.
+     *
+     * @param hierarchy  The abstract graph.
+     * @param from       The end of the path so far.
+     * @param waypoint   The abstract node of the waypoint.
+     * @param restricted Whether to search only the clusters of the two ends, or the whole map.
+     * @return The node at the waypoint (or the goal), or NodeStore.NONE if it can't be reached.
+     */
+    private int refine(Hierarchy hierarchy, int from, int waypoint, boolean restricted) {
+        int wx = nodes.x(waypoint), wy = nodes.y(waypoint);
+        boolean supplied = nodes.isSupplied(waypoint);
+        int fromCluster = hierarchy.cluster(nodes.x(from), nodes.y(from)), toCluster = hierarchy.cluster(wx, wy);
+        NodeHeap open = new NodeHeap(nodes, oldFirst);
+        NodeMap closed = new NodeMap();
+        open.add(from, nodes.getCost(from) + chebyshev(from, wx, wy));
+        int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            int x = nodes.x(current), y = nodes.y(current);
+            if (map.goal(x, y) || (x == wx && y == wy && (nodes.isSupplied(current) || !supplied))) return current;
+            if (closed.containsKey(nodes.directedID(current))) {
+                duplicate(current);  // A copy of an expanded state, never expanded itself.
+                continue;
+            }
+            closed.put(nodes.directedID(current), current);
+            nodes.counters().expanded();
+            for (int[] dir : directions) {
+                int next = map.move(nodes, current, dir);
+                if (next == NodeStore.NONE) continue;
+                int cluster = hierarchy.cluster(nodes.x(next), nodes.y(next));
+                if ((restricted && cluster != fromCluster && cluster != toCluster)
+                        || closed.containsKey(nodes.directedID(next))) {
+                    nodes.release(next);
+                    continue;
+                }
+                open.add(next, nodes.getCost(next) + chebyshev(next, wx, wy));
+            }
+            maxSizeOfOpenList = Math.max(maxSizeOfOpenList, open.size());
+        }
+        return NodeStore.NONE;
+    }
+
+    private void duplicate(int n){
+        nodes.counters().duplicate();
+        nodes.release(n);
+    }
+
+    private int chebyshev(int n, int x, int y){
+        return Math.max(Math.abs(nodes.x(n) - x), Math.abs(nodes.y(n) - y));
+    }
+
+    @Override
+    protected void addToOpenList(int n) {
+        // The open lists are local to the abstract search and to each refinement.
+    }
+
+    @Override
+    protected void printOpenList(PrintStream out) {
+        // The abstract and refinement open lists aren't the open list of one search.
+    }
+}
@@ -0,0 +1,338 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * The abstract graph of hierarchical pathfinding (see HPAStar).
+ * The board is partitioned into clusters of CLUSTER x CLUSTER cells.
+ * Where two neighbouring clusters share a run of open cells along their border, the run gets an entrance
+ * (two, at its ends, if it's long): a pair of cells facing each other across the border, joined by a step edge.
+ * The cells of the entrances are the vertices of the graph, and so are the tunnel entrances
+ * (each pair joined by a tunnel edge, possibly between distant clusters) and the goal.
+ * The vertices of a cluster are joined by intra-cluster edges, whose costs are the distances between them
+ * in the relaxed state space (see Map.relaxedSuccessors), without leaving the cluster.
+ * As in the relaxed state space, an abstract state is a vertex and whether it's supplied (index vertex * 2, + 1 if supplied).
+ * The vertices are found when the hierarchy is built, and the intra-cluster edges of a cluster
+ * the first time a search reaches it, so a query only pays for the clusters it searches.
+ * Hierarchies are cached by map fingerprint (board and goal, not start), so later queries on the same map reuse them.
+ */
+public class Hierarchy {
+
+    protected static final int CLUSTER = 32;
+    /**
+     * Length from which a run of open border cells gets two entrances instead of one.
+     */
+    private static final int LONG_RUN = 6;
+    private static final int UNREACHABLE = Integer.MAX_VALUE, BUCKETS = 16;
+    private static final int CACHE_SIZE = 4;
+    private static final LinkedHashMap<Long, Hierarchy> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map map;
+    private final int rows, cols, clusterCols, goalVertex;
+    /**
+     * The vertex of each vertex cell (y * cols + x), and the cell of each vertex.
+     */
+    private final LongIntMap vertices = new LongIntMap();
+    private int[] cells = new int[64];
+    private int vertexCount = 0;
+    /**
+     * The vertices of each cluster (members[clusterStart[c]] to members[clusterStart[c + 1] - 1]),
+     * and the step edges of each vertex (the same way, into stepTargets).
+     */
+    private int[] clusterStart, members, stepStart, stepTargets;
+    private final int[] tunnelPartner;
+    /**
+     * Intra-cluster edges of each abstract state: pairs of (abstract state, cost). Null until computed.
+     * Entries are published with release and read with acquire (INTRA), so searches on several threads
+     * can share the hierarchy: a thread that sees an entry sees it filled.
+     */
+    private final int[][] intra;
+    private static final VarHandle INTRA = MethodHandles.arrayElementVarHandle(int[][].class);
+    private final boolean[] computed;
+
+    /**
+     * Find the vertices and the step and tunnel edges.
+     *
+     * @param map The map.
+     * @throws IllegalArgumentException If the board is too large for a hierarchy.
+     */
+    private Hierarchy(Map map){
+        if ((long) map.rows() * map.cols() * 2 > Integer.MAX_VALUE - 8) {  // Relaxed states are int indexes.
+            throw new IllegalArgumentException("Board too large for a hierarchy.");
+        }
+        this.map = map; this.rows = map.rows(); this.cols = map.cols();
+        this.clusterCols = (cols + CLUSTER - 1) / CLUSTER;
+        int clusterRows = (rows + CLUSTER - 1) / CLUSTER;
+        IntQueue steps = new IntQueue(), tunnels = new IntQueue();
+        for (int bx = CLUSTER; bx < cols; bx += CLUSTER) {  // Borders between cluster columns.
+            for (int y = 0; y < rows; y += CLUSTER) {
+                border(bx - 1, y, 0, 1, Math.min(CLUSTER, rows - y), steps);
+            }
+        }
+        for (int by = CLUSTER; by < rows; by += CLUSTER) {  // Borders between cluster rows.
+            for (int x = 0; x < cols; x += CLUSTER) {
+                border(x, by - 1, 1, 0, Math.min(CLUSTER, cols - x), steps);
+            }
+        }
+        for (int[] t : map.tunnelPairs()) {
+            if (t[0] == -1) continue;
+            tunnels.add(vertex(t[1] * cols + t[0]));
+            tunnels.add(vertex(t[3] * cols + t[2]));
+        }
+        goalVertex = vertex(map.goalY() * cols + map.goalX());
+
+        // Group the vertices by cluster, and the step edges by vertex:
+        clusterStart = new int[clusterCols * clusterRows + 1];
+        members = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) clusterStart[clusterOf(v) + 1]++;
+        for (int c = 0; c < clusterCols * clusterRows; c++) clusterStart[c + 1] += clusterStart[c];
+        int[] fill = Arrays.copyOf(clusterStart, clusterStart.length);
+        for (int v = 0; v < vertexCount; v++) members[fill[clusterOf(v)]++] = v;
+        stepStart = new int[vertexCount + 1];
+        stepTargets = new int[steps.size()];
+        for (int i = 0; i < steps.size(); i++) stepStart[steps.get(i) + 1]++;
+        for (int v = 0; v < vertexCount; v++) stepStart[v + 1] += stepStart[v];
+        fill = Arrays.copyOf(stepStart, stepStart.length);
+        for (int i = 0; i < steps.size(); i += 2) {  // Both ways.
+            int a = steps.get(i), b = steps.get(i + 1);
+            stepTargets[fill[a]++] = b;
+            stepTargets[fill[b]++] = a;
+        }
+        tunnelPartner = new int[vertexCount];
+        Arrays.fill(tunnelPartner, NodeStore.NONE);
+        for (int i = 0; i < tunnels.size(); i += 2) {
+            tunnelPartner[tunnels.get(i)] = tunnels.get(i + 1);
+            tunnelPartner[tunnels.get(i + 1)] = tunnels.get(i);
+        }
+        intra = new int[vertexCount * 2][];
+        computed = new boolean[clusterCols * clusterRows];
+    }
+
+    /**
+     * Find the entrances along one side of a cluster border.
+     *
+     * @param x      x-coordinate of the first cell on the near side (the facing cell is one step across).
+     * @param y      y-coordinate of the first cell on the near side.
+     * @param dx     Step along the border (x).
+     * @param dy     Step along the border (y).
+     * @param length Number of cells along the border.
+     * @param steps  Queue to add the step edges to, as pairs of vertices.
+     */
+    private void border(int x, int y, int dx, int dy, int length, IntQueue steps){
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            int ax = x + i * dx, ay = y + i * dy;
+            boolean open = i < length && open(ax, ay) && open(ax + dy, ay + dx);
+            if (open && runStart == -1) runStart = i;
+            if (!open && runStart != -1) {
+                if (i - runStart >= LONG_RUN) {
+                    entrance(x + runStart * dx, y + runStart * dy, dx, dy, steps);
+                    entrance(x + (i - 1) * dx, y + (i - 1) * dy, dx, dy, steps);
+                }
+                else {
+                    int middle = (runStart + i - 1) / 2;
+                    entrance(x + middle * dx, y + middle * dy, dx, dy, steps);
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    private void entrance(int x, int y, int dx, int dy, IntQueue steps){
+        steps.add(vertex(y * cols + x));
+        steps.add(vertex((y + dx) * cols + x + dy));
+    }
+
+    /**
+     * Whether a cell can be stood on (when supplied).
+     */
+    private boolean open(int x, int y){
+        return map.cost(x, y, false, true) != -1;
+    }
+
+    /**
+     * The vertex of a cell, added if it isn't a vertex yet.
+     */
+    private int vertex(int cell){
+        int v = vertices.get(cell);
+        if (v != LongIntMap.ABSENT) return v;
+        if (vertexCount == cells.length) cells = Arrays.copyOf(cells, vertexCount << 1);
+        cells[vertexCount] = cell;
+        vertices.put(cell, vertexCount);
+        return vertexCount++;
+    }
+
+    private int clusterOf(int v){
+        return cluster(cells[v] % cols, cells[v] / cols);
+    }
+
+    /**
+     * The hierarchy of a map, from the cache or built (and cached).
+     *
+     * @param map The map.
+     * @return The hierarchy.
+     * @throws IllegalArgumentException If the board is too large for a hierarchy.
+     */
+    protected static Hierarchy of(Map map){
+        synchronized (cache) {
+            Hierarchy hierarchy = cache.get(map.fingerprint());
+            if (hierarchy == null) {
+                hierarchy = new Hierarchy(map);
+                cache.put(map.fingerprint(), hierarchy);
+                if (cache.size() > CACHE_SIZE) cache.remove(cache.keySet().iterator().next());  // Least recently used.
+            }
+            return hierarchy;
+        }
+    }
+
+    /**
+     * The cluster of a cell.
+     */
+    protected int cluster(int x, int y){
+        return (y / CLUSTER) * clusterCols + x / CLUSTER;
+    }
+
+    /**
+     * The vertex at a cell.
+     *
+     * @return The vertex, or NodeStore.NONE if the cell isn't a vertex.
+     */
+    protected int vertexAt(int x, int y){
+        int v = vertices.get((long) y * cols + x);
+        return v != LongIntMap.ABSENT ? v : NodeStore.NONE;
+    }
+
+    protected int x(int vertex){
+        return cells[vertex] % cols;
+    }
+
+    protected int y(int vertex){
+        return cells[vertex] / cols;
+    }
+
+    protected int goalVertex(){
+        return goalVertex;
+    }
+
+    /**
+     * The intra-cluster edges of an abstract state (computed with the rest of its cluster on first use).
+     *
+     * @param state An abstract state.
+     * @return Pairs of (abstract state, cost).
+     */
+    protected int[] intraEdges(int state){
+        int[] edges = (int[]) INTRA.getAcquire(intra, state);
+        if (edges == null) {
+            computeCluster(clusterOf(state >> 1));
+            edges = (int[]) INTRA.getAcquire(intra, state);
+        }
+        return edges;
+    }
+
+    /**
+     * The step and tunnel edges of an abstract state.
+     *
+     * @param state An abstract state.
+     * @param out   Array to fill with pairs of (abstract state, cost), at least 18 long.
+     * @return The number of ints written.
+     */
+    protected int interEdges(int state, int[] out){
+        int v = state >> 1, x = x(v), y = y(v), n = 0;
+        boolean supplied = (state & 1) != 0;
+        for (int i = stepStart[v]; i < stepStart[v + 1]; i++) {
+            int target = stepTargets[i];
+            int step = map.transition(x, y, (byte) ((x(target) - x + 1) * 3 + (y(target) - y + 1)));
+            if (!Map.legal(step, supplied)) continue;
+            out[n++] = target * 2 + (supplied || (step & Map.SUPPLIES) != 0 ? 1 : 0);
+            out[n++] = step & Map.COST_MASK;
+        }
+        if (tunnelPartner[v] != NodeStore.NONE) {
+            out[n++] = tunnelPartner[v] * 2 + (state & 1);
+            out[n++] = 2;
+        }
+        return n;
+    }
+
+    /**
+     * The edges from a cell that isn't a vertex (the start) to the vertices of its cluster.
+     *
+     * @param x        x-coordinate.
+     * @param y        y-coordinate.
+     * @param supplied Whether the state at the cell is supplied.
+     * @return Pairs of (abstract state, cost).
+     */
+    protected int[] edgesFrom(int x, int y, boolean supplied){
+        return edgesFrom(cluster(x, y), (y * cols + x) * 2 + (supplied ? 1 : 0));
+    }
+
+    /**
+     * Compute the intra-cluster edges of every abstract state of a cluster.
+     */
+    private synchronized void computeCluster(int c){
+        if (computed[c]) return;
+        for (int i = clusterStart[c]; i < clusterStart[c + 1]; i++) {
+            int v = members[i];
+            for (int s = 0; s < 2; s++) INTRA.setRelease(intra, v * 2 + s, edgesFrom(c, cells[v] * 2 + s));
+        }
+        computed[c] = true;
+    }
+
+    /**
+     * The distances from a relaxed state to the vertices of its cluster, without leaving the cluster
+     * (Dial's algorithm, since moves cost at most 10).
+     *
+     * @param c     The cluster.
+     * @param state The relaxed state (see Map.relaxedSuccessors).
+     * @return Pairs of (abstract state, cost), for every reachable abstract state other than the source.
+     */
+    private int[] edgesFrom(int c, int state){
+        int left = (c % clusterCols) * CLUSTER, top = (c / clusterCols) * CLUSTER;
+        int width = Math.min(CLUSTER, cols - left), height = Math.min(CLUSTER, rows - top);
+        int[] dist = new int[width * height * 2];
+        Arrays.fill(dist, UNREACHABLE);
+        IntQueue[] buckets = new IntQueue[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new IntQueue();
+        dist[local(state, left, top, width)] = 0;
+        buckets[0].add(state);
+        int pending = 1;
+        int[] next = new int[20];
+        for (int d = 0; pending > 0; d++) {
+            IntQueue bucket = buckets[d & (BUCKETS - 1)];
+            while (!bucket.isEmpty()) {
+                int current = bucket.poll();
+                pending--;
+                if (dist[local(current, left, top, width)] != d) continue;  // A shorter copy was already expanded.
+                int n = map.relaxedSuccessors(current, next);
+                for (int i = 0; i < n; i += 2) {
+                    int x = (next[i] >> 1) % cols, y = (next[i] >> 1) / cols;
+                    if (x < left || y < top || x >= left + width || y >= top + height) continue;
+                    int j = local(next[i], left, top, width), cost = d + next[i + 1];
+                    if (cost < dist[j]) {
+                        dist[j] = cost;
+                        buckets[cost & (BUCKETS - 1)].add(next[i]);
+                        pending++;
+                    }
+                }
+            }
+        }
+        IntQueue edges = new IntQueue();
+        for (int i = clusterStart[c]; i < clusterStart[c + 1]; i++) {
+            int v = members[i];
+            for (int s = 0; s < 2; s++) {
+                int d = dist[local(cells[v] * 2 + s, left, top, width)];
+                if (d == UNREACHABLE || cells[v] * 2 + s == state) continue;
+                edges.add(v * 2 + s);
+                edges.add(d);
+            }
+        }
+        int[] pairs = new int[edges.size()];
+        for (int i = 0; i < pairs.length; i++) pairs[i] = edges.get(i);
+        return pairs;
+    }
+
+    private int local(int state, int left, int top, int width){
+        int cell = state >> 1;
+        return (((cell / cols) - top) * width + (cell % cols) - left) * 2 + (state & 1);
+    }
+}
@@ -1,17 +1,39 @@
+import java.io.PrintStream;
+
 public class IDAStar extends IterativeDepthFirstSearchAlgo {
 
+    /**
+     * Whether to generate successors by jump point search (see Map.jump) instead of single moves.
+     */
+    private final boolean jumpPoints;
+    /**
+     * The lowest cost each state was reached at in the current iteration (see TranspositionTable).
+     */
+    private final TranspositionTable table;
+    /**
+     * The expanded ('out') nodes on the stack, by state: the path from start to the node being expanded.
+     * Its size is bounded by the depth, so it guards against cycles whatever the table has forgotten.
+     */
+    private final NodeMap path = new NodeMap();
+
     /**
      * Constructor.
      *
-     * @param clockwise order in which to create the next-step nodes.
-     * @param withTime  whether to print runtime or not.
-     * @param withOpen  whether to print current open list at every step.
-     * @param map       the board to search.
-     * @param start     start node.
+     * @param clockwise  order in which to create the next-step nodes.
+     * @param withTime   whether to print runtime or not.
+     * @param withOpen   whether to print current open list at every step.
+     * @param jumpPoints whether to use jump point search successors.
+     * @param table      the transposition table.
+     * @param map        the board to search.
+     * @param nodes      the node store.
+     * @param start      start node.
      */
-    protected IDAStar(boolean clockwise, boolean withTime, boolean withOpen, Map map, Node start) {
+    protected IDAStar(boolean clockwise, boolean withTime, boolean withOpen, boolean jumpPoints,
+                      TranspositionTable table, Map map, NodeStore nodes, int start) {
         this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
-        this.map = map; this.start = start;
+        this.map = map; this.nodes = nodes; this.start = start;
+        this.jumpPoints = jumpPoints;
+        this.table = table;
         this.maxF = maxF(map);
     }
 
@@ -21,65 +43,83 @@ public class IDAStar extends IterativeDepthFirstSearchAlgo {
      * runs while optimistic guess for path cost is less than the max possible path cost.
      * Inner loop is the actual algorithm engine, runs DFS-like (stack based) bounded search,
      * directed by the f-value.
+     * A node is pruned if its state was already reached at the same or a lower cost in this iteration
+     * (by the transposition table, which is cleared between iterations), or if its state is on the current path.
+     * A node on the stack whose state has since been reached at a lower cost is skipped when popped (lazy deletion).
      *
      * @return A string representing the path, or "no path" if no path exists.
      */
     @Override
     protected String findPath() {
         int previousT = -1;
-        int t = map.heuristic(start.x(), start.y());  // Equal to f(start), because cost(start) == 0.
+        int t = map.heuristic(nodes.x(start), nodes.y(start), nodes.isSupplied(start));  // Equal to f(start), because cost(start) == 0.
+        int iteration = 0;
         while (t <= maxF && t != previousT){
             previousT = t;
             int minF = maxF;
-            start.reset();      // Reset start - not supplied, no direction, no parent.
+            SearchEvents.Iteration event = SearchEvents.beginIteration();
+            table.clear();
+            path.clear();
+            nodes.reset(start);     // Reset start - not supplied, no direction, no parent, not out.
             addToOpenList(start);
             while (!stack.empty()){
                 if (withOpen) printOpenList();
-                Node current = stack.pop();
-                if (isOut(current)) openList.remove(current.ID());
+                int current = stack.pop();
+                if (isOut(current)) {
+                    path.remove(nodes.ID(current));
+                    if (current != start) nodes.release(current);  // Its whole subtree is done.
+                }
+                else if (table.get(nodes.ID(current)) < nodes.getCost(current)) {
+                    nodes.release(current);  // Reached at a lower cost since it was pushed, never expanded.
+                }
                 else {
                     setOut(current);
+                    path.put(nodes.ID(current), current);
                     stack.push(current);
+                    nodes.counters().expanded();
+                    traceExpansion(current, stack.size());
                     int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
                     for (int[] dir : directions) {
-                        Node next = map.move(current, dir);
-                        if (next == null) continue;
-                        int nextF = map.f(next);
-                        if (nextF > t) minF = Math.min(minF, nextF);
+                        int next = jumpPoints ? map.jump(nodes, current, dir) : map.move(nodes, current, dir);
+                        if (next == NodeStore.NONE) continue;
+                        int nextF = map.f(nodes, next);
+                        if (nextF > t) {
+                            minF = Math.min(minF, nextF);
+                            nodes.release(next);
+                        }
+                        else if (table.get(nodes.ID(next)) <= nodes.getCost(next) || path.containsKey(nodes.ID(next))) {
+                            nodes.counters().duplicate();
+                            nodes.release(next);  // Already reached at no higher cost in this iteration, or a cycle.
+                        }
                         else {
-                            String nextID = next.ID();
-                            if (openList.containsKey(nextID)) {
-                                Node oldNext = openList.get(nextID);
-                                if (!isOut(oldNext) && map.f(oldNext) > nextF){
-                                    openList.remove(nextID);
-                                    stack.remove(oldNext);
-                                }
+                            if (map.goal(nodes, next)) {
+                                SearchEvents.end(event, "IDA*", ++iteration, t, nodesCreated(), true);
+                                return getPath(next);
                             }
-                            if (map.goal(next)) return getPath(next);
                             addToOpenList(next);
                         }
                     }
                 }
             }
+            SearchEvents.end(event, "IDA*", ++iteration, t, nodesCreated(), false);
             t = minF;
-            System.out.println(t);
         }
         return "no path";
     }
 
     @Override
-    protected void addToOpenList(Node n) {
+    protected void addToOpenList(int n) {
         stack.push(n);
-        openList.put(n.ID(), n);
-        maxSizeOfOpenList = Math.max(maxSizeOfOpenList, openList.size());
+        table.put(nodes.ID(n), nodes.getCost(n));
+        maxSizeOfOpenList = Math.max(maxSizeOfOpenList, stack.size());
     }
 
     @Override
-    protected void printOpenList(){
-        System.out.print(stack.size());
-        for (Node n : stack){
-            System.out.print("  " + n.toString(map) + isOut(n));
+    protected void printOpenList(PrintStream out){
+        out.print(stack.size());
+        for (int i = 0; i < stack.size(); i++){
+            out.print("  " + nodes.toString(stack.get(i), true) + isOut(stack.get(i)));
         }
-        System.out.println();
+        out.println();
     }
 }
@@ -0,0 +1,42 @@
+/**
+ * FIFO queue of ints (node indices) on a growable circular array, replacing ArrayDeque<Node> for BFS.
+ */
+public class IntQueue {
+
+    private int[] items = new int[64];
+    private int head = 0, size = 0;
+
+    protected void add(int n){
+        if (size == items.length) {
+            int[] grown = new int[size << 1];
+            int firstPart = size - head;
+            System.arraycopy(items, head, grown, 0, firstPart);
+            System.arraycopy(items, 0, grown, firstPart, head);
+            items = grown;
+            head = 0;
+        }
+        items[(head + size++) & (items.length - 1)] = n;
+    }
+
+    protected int poll(){
+        int n = items[head];
+        head = (head + 1) & (items.length - 1);
+        size--;
+        return n;
+    }
+
+    protected boolean isEmpty(){
+        return size == 0;
+    }
+
+    protected int size(){
+        return size;
+    }
+
+    /**
+     * Get an item by position, from the head (0) to the tail (size - 1).
+     */
+    protected int get(int i){
+        return items[(head + i) & (items.length - 1)];
+    }
+}
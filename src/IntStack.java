@@ -0,0 +1,55 @@
+import java.util.Arrays;
+
+/**
+ * Unsynchronized stack of ints (node indices), replacing java.util.Stack for the depth-first searches.
+ */
+public class IntStack {
+
+    private int[] items = new int[64];
+    private int size = 0;
+
+    protected void push(int n){
+        if (size == items.length) items = Arrays.copyOf(items, size << 1);
+        items[size++] = n;
+    }
+
+    protected int pop(){
+        return items[--size];
+    }
+
+    protected boolean empty(){
+        return size == 0;
+    }
+
+    protected int size(){
+        return size;
+    }
+
+    /**
+     * Get an item by position, from the bottom (0) to the top (size - 1).
+     */
+    protected int get(int i){
+        return items[i];
+    }
+
+    /**
+     * Remove the first (lowest) occurrence of an item, shifting the items above it down.
+     *
+     * @param n Item to remove.
+     * @return True iff the item was found.
+     */
+    protected boolean remove(int n){
+        for (int i = 0; i < size; i++) {
+            if (items[i] == n) {
+                System.arraycopy(items, i + 1, items, i, size - i - 1);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected void clear(){
+        size = 0;
+    }
+}
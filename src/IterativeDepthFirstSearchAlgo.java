@@ -1,10 +1,6 @@
-import java.util.HashSet;
-import java.util.Stack;
-
 public abstract class IterativeDepthFirstSearchAlgo extends SearchAlgo{
 
-    private HashSet<Node> isOut = new HashSet<>();
-    protected Stack<Node> stack = new Stack<>();
+    protected IntStack stack = new IntStack();
     protected int maxF;
 
     /**
@@ -20,7 +16,7 @@ public abstract class IterativeDepthFirstSearchAlgo extends SearchAlgo{
      * @param map The map.
      * @return Max possible f-value on the map.
      */
-    protected int maxF(Map map){
+    protected static int maxF(Map map){
         int[] counts = map.charCounts();
         int totalSum = 0;
         for (int i = 0; i < counts.length - 1; i++) {
@@ -37,12 +33,12 @@ public abstract class IterativeDepthFirstSearchAlgo extends SearchAlgo{
      * @param node Node to check.
      * @return true if out, false otherwise.
      */
-    protected boolean isOut(Node node) {
-        return isOut.contains(node);
+    protected boolean isOut(int node) {
+        return nodes.isOut(node);
     }
 
-    protected void setOut(Node node) {
-        isOut.add(node);
+    protected void setOut(int node) {
+        nodes.setOut(node);
     }
 
 }
@@ -0,0 +1,150 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Position-indexed binary min-heap of nodes by long keys, used as the LPA* open list.
+ * Like NodeHeap, every node's position in the heap is kept in the node store,
+ * so any node can be removed or have its key changed in O(log n).
+ * Ties are broken by serial number, oldest first.
+ */
+public class KeyHeap {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private final NodeStore store;
+    private int[] nodes = new int[DEFAULT_CAPACITY];
+    private long[] keys = new long[DEFAULT_CAPACITY];
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param store the nodes.
+     */
+    protected KeyHeap(NodeStore store){
+        this.store = store;
+    }
+
+    protected int size(){
+        return size;
+    }
+
+    protected boolean isEmpty(){
+        return size == 0;
+    }
+
+    protected boolean contains(int n){
+        return store.heapIndex(n) >= 0;
+    }
+
+    /**
+     * @return The smallest key, or Long.MAX_VALUE if the heap is empty.
+     */
+    protected long peekKey(){
+        return size == 0 ? Long.MAX_VALUE : keys[0];
+    }
+
+    /**
+     * Add a node, or change its key if it's already in the heap.
+     *
+     * @param n   The node.
+     * @param key Its key.
+     */
+    protected void put(int n, long key){
+        store.counters().heapOperation();
+        if (contains(n)) {
+            int i = store.heapIndex(n);
+            long old = keys[i];
+            keys[i] = key;
+            if (key < old) siftUp(i);
+            else siftDown(i);
+            return;
+        }
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size << 1);
+            keys = Arrays.copyOf(keys, size << 1);
+        }
+        set(size, n, key);
+        siftUp(size++);
+    }
+
+    /**
+     * Remove and return the node with the smallest key.
+     *
+     * @return The node, or NodeStore.NONE if the heap is empty.
+     */
+    protected int poll(){
+        if (size == 0) return NodeStore.NONE;
+        int min = nodes[0];
+        remove(min);
+        return min;
+    }
+
+    /**
+     * Remove a node, if it's in the heap.
+     *
+     * @param n The node.
+     */
+    protected void remove(int n){
+        int i = store.heapIndex(n);
+        if (i < 0) return;
+        store.counters().heapOperation();
+        store.setHeapIndex(n, -1);
+        size--;
+        if (i < size) {
+            set(i, nodes[size], keys[size]);
+            siftDown(i);
+            siftUp(i);
+        }
+    }
+
+    /**
+     * Apply an action to every node, in heap order (not sorted).
+     *
+     * @param action Action to apply.
+     */
+    protected void forEach(IntConsumer action){
+        for (int i = 0; i < size; i++) action.accept(nodes[i]);
+    }
+
+    private void set(int i, int n, long key){
+        nodes[i] = n; keys[i] = key;
+        store.setHeapIndex(n, i);
+    }
+
+    /**
+     * Heap order: key, then serial number.
+     *
+     * @return True iff the node at i should come before the node at j.
+     */
+    private boolean less(int i, int j){
+        if (keys[i] != keys[j]) return keys[i] < keys[j];
+        return store.getSerialNumber(nodes[i]) < store.getSerialNumber(nodes[j]);
+    }
+
+    private void siftUp(int i){
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i){
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int child = left + 1 < size && less(left + 1, left) ? left + 1 : left;
+            if (!less(child, i)) break;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j){
+        int n = nodes[i];
+        long key = keys[i];
+        set(i, nodes[j], keys[j]);
+        set(j, n, key);
+    }
+}
@@ -0,0 +1,280 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+public class LPAStar extends SearchAlgo {
+
+    private static final int INF = Integer.MAX_VALUE;
+    /**
+     * Each state is (x, y, supplied, direction of the move that produced it),
+     * since the direction decides the legal next moves (see Map.move). Its record is a node (with cost 0)
+     * whose g-value (cost of the best path found to it) and rhs-value (one-step lookahead: the lowest g of
+     * a predecessor plus the cost of the step) are kept here, by node.
+     */
+    private final NodeMap states = new NodeMap();
+    private int[] g = new int[64], rhs = new int[64];
+    /**
+     * The open list: the inconsistent states (g != rhs), by key (see key).
+     */
+    private final KeyHeap open;
+    /**
+     * The records at G (at most 20: two supply states by ten directions).
+     */
+    private final IntStack goals = new IntStack();
+    private final int[] predecessors = new int[32];
+    /**
+     * The edits to make after the first search, each {x, y, new character} (see Problem.edits).
+     */
+    private final List<int[]> edits;
+
+    /**
+     * Constructor.
+     *
+     * @param clockwise order in which to create the next-step nodes.
+     * @param withTime  whether to print runtime or not.
+     * @param withOpen  whether to print current open list at every step.
+     * @param edits     edits of the board, made after the first search, which is then repaired (may be empty).
+     * @param map       the board to search.
+     * @param nodes     the node store.
+     * @param start     start node.
+     */
+    protected LPAStar(boolean clockwise, boolean withTime, boolean withOpen, List<int[]> edits,
+                      Map map, NodeStore nodes, int start){
+        this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
+        this.map = map; this.nodes = nodes; this.start = start;
+        this.edits = edits;
+        this.open = new KeyHeap(nodes);
+        states.put(nodes.directedID(start), start);
+        ensureCapacity(start);
+        g[start] = INF;
+        rhs[start] = 0;
+        open.put(start, key(start));
+    }
+
+    /**
+     * Lifelong Planning A* (LPA*): finds an optimal path, and after the map changes (see update)
+     * finds the new optimal path by repairing only the part of the previous search the changes affect.
+     * States are expanded by key, like A*; a state whose g-value is higher than its rhs-value (overconsistent)
+     * gets the rhs-value as its g-value, and one whose g-value is lower (underconsistent, after a change raised a cost)
+     * is reset to infinity, and its successors are updated.
+     * Stops when no inconsistent state has a lower key than the best state at G, and that state is consistent.
+     * If there are edits, they are made after the first search (see update), and the path is repaired:
+     * the answer is the path on the edited board, and the counts include both searches.
+     *
+     * @return A string representing the path, or "no path" if no path exists.
+     */
+    @Override
+    protected String findPath() {
+        String path = plan();
+        if (edits.isEmpty()) return path;
+        for (int[] e : edits) update(e[0], e[1], (char) e[2]);
+        return plan();
+    }
+
+    /**
+     * Search until the path is optimal (the first search, or a repair after updates).
+     *
+     * @return A string representing the path, or "no path" if no path exists.
+     */
+    private String plan() {
+        int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
+        while (true) {
+            int goal = bestGoal();
+            if (open.isEmpty()
+                    || (goal != NodeStore.NONE && open.peekKey() >= key(goal) && g[goal] == rhs[goal])) break;
+            if (withOpen) printOpenList();  // Option for debugging.
+            long k = open.peekKey();
+            int u = open.poll();
+            if (!map.goal(nodes, u)) {
+                nodes.counters().expanded();
+                traceExpansion(nodes.directedID(u), (int) k, (int) (k >>> 32), open.size());
+            }
+            if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                if (map.goal(nodes, u)) continue;  // The search stops at G, so G has no successors.
+                for (int[] dir : directions) {
+                    int next = map.move(nodes, u, dir);
+                    if (next == NodeStore.NONE) continue;
+                    int s = record(next), cost = g[u] + nodes.getCost(next);
+                    nodes.release(next);
+                    if (s != start && cost < rhs[s]) {
+                        rhs[s] = cost;
+                        enqueue(s);
+                    }
+                }
+            }
+            else {
+                nodes.counters().reopened();  // Its cost went up, so it's searched again.
+                g[u] = INF;
+                updateState(u);
+                if (!map.goal(nodes, u)) successors(u, directions);
+            }
+        }
+        int goal = bestGoal();
+        if (goal == NodeStore.NONE || g[goal] == INF) return "no path";
+        pathCost = g[goal];
+        return path(goal);
+    }
+
+    /**
+     * Change a cell of the map (see Map.setCell), and update the states whose incoming steps changed:
+     * the states at the cell, and those the neighbors' states can reach now.
+     * The next search (see plan) repairs the path.
+     *
+     * @param x x-coordinate.
+     * @param y y-coordinate.
+     * @param c The new character.
+     * @throws IllegalArgumentException If the cell can't be changed to c (see Map.setCell).
+     */
+    protected void update(int x, int y, char c) {
+        map.setCell(x, y, c);
+        for (byte d = 0; d < 9; d++) {
+            int fromX = x - NodeStore.dx(d), fromY = y - NodeStore.dy(d);
+            if (d == NodeStore.NO_DIR || fromX < 0 || fromY < 0 || fromY >= map.rows() || fromX >= map.cols()
+                    || map.goal(fromX, fromY)) continue;
+            int[] dir = {NodeStore.dx(d), NodeStore.dy(d)};
+            for (int key = 0; key < 20; key++) {  // Every state at the neighbor.
+                int p = states.get(StateKey.pack(fromX, fromY, key >= 10, (byte) (key % 10)));
+                if (p == NodeStore.NONE) continue;
+                int next = map.move(nodes, p, dir);
+                if (next == NodeStore.NONE) continue;
+                record(next);
+                nodes.release(next);
+            }
+        }
+        for (int key = 0; key < 20; key++) {
+            int s = states.get(StateKey.pack(x, y, key >= 10, (byte) (key % 10)));
+            if (s != NodeStore.NONE) updateState(s);
+        }
+    }
+
+    /**
+     * Update the successors of a state (whose g-value changed).
+     */
+    private void successors(int u, int[][] directions) {
+        for (int[] dir : directions) {
+            int next = map.move(nodes, u, dir);
+            if (next == NodeStore.NONE) continue;
+            int s = record(next);
+            nodes.release(next);
+            updateState(s);
+        }
+    }
+
+    /**
+     * Recompute a state's rhs-value from its predecessors, and put it in the open list iff it's inconsistent.
+     */
+    private void updateState(int s) {
+        if (s != start) {
+            int best = INF;
+            int count = map.predecessors(nodes, s, predecessors);
+            for (int i = 0; i < count; i++) {
+                int p = states.get(nodes.directedID(predecessors[i]));
+                if (p != NodeStore.NONE && g[p] != INF) {
+                    best = Math.min(best, g[p] + nodes.getCost(predecessors[i]));
+                }
+                nodes.release(predecessors[i]);
+            }
+            rhs[s] = best;
+        }
+        enqueue(s);
+    }
+
+    private void enqueue(int s) {
+        if (g[s] != rhs[s]) {
+            open.put(s, key(s));
+            maxSizeOfOpenList = Math.max(maxSizeOfOpenList, open.size());
+        }
+        else open.remove(s);
+    }
+
+    /**
+     * The key of a state: min(g, rhs) + h, then min(g, rhs), packed into a long so keys compare lexicographically.
+     * The heuristic is the cell's (see Map.heuristic), which stays admissible when cells change.
+     */
+    private long key(int s) {
+        long k = Math.min(g[s], rhs[s]);
+        if (k == INF) return Long.MAX_VALUE;
+        nodes.counters().heuristicEvaluated();
+        return (k + map.heuristic(nodes.x(s), nodes.y(s))) << 32 | k;
+    }
+
+    /**
+     * The record of the state of a node, created (with g and rhs infinite) if there is none.
+     */
+    private int record(int n) {
+        long id = nodes.directedID(n);
+        int s = states.get(id);
+        if (s != NodeStore.NONE) return s;
+        s = nodes.newNode(nodes.x(n), nodes.y(n), 0, nodes.getDir(n), nodes.isSupplied(n), NodeStore.NONE);
+        ensureCapacity(s);
+        g[s] = INF;
+        rhs[s] = INF;
+        states.put(id, s);
+        if (map.goal(nodes, s)) goals.push(s);
+        return s;
+    }
+
+    private void ensureCapacity(int s) {
+        if (s < g.length) return;
+        g = Arrays.copyOf(g, Math.max(s + 1, g.length << 1));
+        rhs = Arrays.copyOf(rhs, g.length);
+    }
+
+    /**
+     * The state at G with the lowest key.
+     *
+     * @return Its record, or NodeStore.NONE if no state at G was reached.
+     */
+    private int bestGoal() {
+        int best = NodeStore.NONE;
+        for (int i = 0; i < goals.size(); i++) {
+            int s = goals.get(i);
+            if (best == NodeStore.NONE || key(s) < key(best)) best = s;
+        }
+        return best;
+    }
+
+    /**
+     * The path to a state: back from it, each time to the predecessor on an optimal path.
+     */
+    private String path(int s) {
+        IntStack steps = new IntStack();
+        while (s != start) {
+            steps.push(nodes.getDir(s));
+            int count = map.predecessors(nodes, s, predecessors), previous = NodeStore.NONE;
+            for (int i = 0; i < count; i++) {
+                int p = states.get(nodes.directedID(predecessors[i]));
+                if (p != NodeStore.NONE && g[p] != INF && g[p] + nodes.getCost(predecessors[i]) == g[s]) {
+                    previous = p;
+                }
+                nodes.release(predecessors[i]);
+            }
+            if (previous == NodeStore.NONE) {
+                throw new IllegalStateException("LPA* path broken at " + nodes.toString(s, false));
+            }
+            s = previous;
+        }
+        StringBuilder path = new StringBuilder();
+        while (!steps.empty()) {
+            if (path.length() > 0) path.append('-');
+            path.append(NodeStore.dirName((byte) steps.pop()));
+        }
+        return path.toString();
+    }
+
+    @Override
+    protected void addToOpenList(int n) {
+        enqueue(n);
+    }
+
+    /**
+     * Prints open list (in heap order, not sorted).
+     */
+    @Override
+    protected void printOpenList(PrintStream out) {
+        out.print(open.size());
+        open.forEach(n -> out.print("  " + nodes.toString(n, false) + " g=" + g[n] + " rhs=" + rhs[n]));
+        out.println();
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+/**
+ * Landmark (ALT) lower bounds on the cost to the goal.
+ * For a few landmark cells L, the exact distances from L to every state and from every state to L are precomputed,
+ * and by the triangle inequality, for a state n and the goal G:
+ * cost(n, G) >= dist(L, G) - dist(L, n), and cost(n, G) >= dist(n, L) - dist(G, L).
+ * Unlike the chebyshev heuristic, these bounds see walls, '~' that needs supplies and the cost of '^'.
+ * <p>
+ * The distances are over the relaxed state space (see Map.relaxedSuccessors),
+ * where every real path is a path with the same cost, so the distances (and the bounds) never overestimate.
+ * The landmarks are chosen by farthest-point selection: the first is the cell farthest from the start,
+ * and each next one the cell farthest from all those already chosen, so they end up around the edges of the map.
+ */
+public class Landmarks {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    /**
+     * Buckets of Dial's algorithm (a power of two larger than the most expensive move, 10).
+     */
+    private static final int BUCKETS = 16;
+
+    private final Map map;
+    private final int cols, count;
+    /**
+     * Distances per landmark, by state (index (y * cols + x) * 2, + 1 if supplied):
+     * from the landmark (unsupplied) to the state, and from the state to the landmark (in either state).
+     */
+    private final int[][] from, to;
+    /**
+     * Per landmark: distance from it to the goal, and from the goal (unsupplied, the worse case) to it.
+     */
+    private final int[] fromToGoal, goalToLandmark;
+    private final long nanos;
+
+    /**
+     * Choose the landmarks, and compute their distances.
+     *
+     * @param map   The map.
+     * @param count Number of landmarks.
+     * @throws IllegalArgumentException If the board is too large for landmarks, or they don't fit in memory.
+     */
+    protected Landmarks(Map map, int count){
+        long startTime = System.nanoTime();
+        if ((long) map.rows() * map.cols() * 2 > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board too large for landmarks.");
+        }
+        if ((long) count * 2 * Integer.BYTES * map.rows() * map.cols() * 2 > Runtime.getRuntime().maxMemory()) {
+            throw new IllegalArgumentException("Not enough memory for " + count + " landmarks.");
+        }
+        this.map = map; this.cols = map.cols(); this.count = count;
+        int states = map.rows() * map.cols() * 2;
+        from = new int[count][];
+        to = new int[count][];
+        fromToGoal = new int[count];
+        goalToLandmark = new int[count];
+        int goal = (map.goalY() * cols + map.goalX()) * 2;
+        // Distance from the nearest chosen landmark (at first, from the start), for choosing the next one:
+        int[] nearest = new int[states];
+        search(nearest, map.startY() * cols + map.startX(), false);
+        for (int i = 0; i < count; i++) {
+            int landmark = farthest(nearest);
+            from[i] = new int[states];
+            to[i] = new int[states];
+            search(from[i], landmark, false);
+            search(to[i], landmark, true);
+            fromToGoal[i] = Math.min(from[i][goal], from[i][goal + 1]);
+            goalToLandmark[i] = to[i][goal];
+            if (i == 0) Arrays.fill(nearest, UNREACHABLE);  // The start isn't a landmark.
+            for (int s = 0; s < states; s++) nearest[s] = Math.min(nearest[s], from[i][s]);
+        }
+        nanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * The reachable cell farthest from the chosen landmarks (the first in board order if there's a tie).
+     */
+    private int farthest(int[] nearest){
+        int best = 0, bestDistance = -1;
+        for (int cell = 0; cell < nearest.length / 2; cell++) {
+            int distance = Math.min(nearest[cell * 2], nearest[cell * 2 + 1]);
+            if (distance != UNREACHABLE && distance > bestDistance) {
+                best = cell;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Dijkstra (Dial's algorithm, since moves cost at most 10) over the relaxed states.
+     *
+     * @param dist     Array to fill with the distances.
+     * @param cell     The source cell (y * cols + x).
+     * @param backward False for distances from the cell (unsupplied), true for distances to it (in either state).
+     */
+    private void search(int[] dist, int cell, boolean backward){
+        Arrays.fill(dist, UNREACHABLE);
+        IntQueue[] buckets = new IntQueue[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new IntQueue();
+        int pending = 0;
+        for (int s = 0; s < (backward ? 2 : 1); s++) {
+            dist[cell * 2 + s] = 0;
+            buckets[0].add(cell * 2 + s);
+            pending++;
+        }
+        int[] next = new int[40];
+        for (int d = 0; pending > 0; d++) {
+            IntQueue bucket = buckets[d & (BUCKETS - 1)];
+            while (!bucket.isEmpty()) {
+                int state = bucket.poll();
+                pending--;
+                if (dist[state] != d) continue;  // A shorter copy was already expanded.
+                int n = backward ? map.relaxedPredecessors(state, next) : map.relaxedSuccessors(state, next);
+                for (int i = 0; i < n; i += 2) {
+                    int cost = d + next[i + 1];
+                    if (cost < dist[next[i]]) {
+                        dist[next[i]] = cost;
+                        buckets[cost & (BUCKETS - 1)].add(next[i]);
+                        pending++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The best landmark lower bound on the cost from a state to the goal.
+     *
+     * @param x        x-coordinate.
+     * @param y        y-coordinate.
+     * @param supplied Whether the state is supplied.
+     * @return The bound (0 if no landmark gives one).
+     */
+    protected int bound(int x, int y, boolean supplied){
+        int state = (y * cols + x) * 2 + (supplied ? 1 : 0), h = 0;
+        for (int i = 0; i < count; i++) {
+            int fromLandmark = from[i][state], toLandmark = to[i][state];
+            if (fromLandmark != UNREACHABLE && fromToGoal[i] != UNREACHABLE) {
+                h = Math.max(h, fromToGoal[i] - fromLandmark);
+            }
+            if (toLandmark != UNREACHABLE && goalToLandmark[i] != UNREACHABLE) {
+                h = Math.max(h, toLandmark - goalToLandmark[i]);
+            }
+        }
+        return h;
+    }
+
+    protected int count(){
+        return count;
+    }
+
+    /**
+     * Memory used by the distance tables, in bytes.
+     */
+    protected long bytes(){
+        return (long) count * 2 * Integer.BYTES * map.rows() * map.cols() * 2;
+    }
+
+    /**
+     * Time taken to choose the landmarks and compute their distances, in nanoseconds.
+     */
+    protected long nanos(){
+        return nanos;
+    }
+}
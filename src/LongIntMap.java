@@ -0,0 +1,152 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Open-addressing hash table from non-negative long keys (packed state keys, see {@link StateKey}, or cell indexes)
+ * to int values (nodes, see {@link NodeMap}, or any other number per key: a depth, a vertex...).
+ * Uses linear probing, and backward-shift deletion so no tombstones are left behind.
+ */
+public class LongIntMap {
+
+    /**
+     * The value of a key that isn't in the table (equal to NodeStore.NONE, so a NodeMap returns no node).
+     */
+    protected static final int ABSENT = -1;
+    private static final long EMPTY = -1L;
+    private static final int DEFAULT_CAPACITY = 64;
+    private long[] keys;
+    private int[] values;
+    private int size, mask;
+
+    protected LongIntMap(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expected Expected number of entries (table is sized to stay at most half full).
+     */
+    protected LongIntMap(int expected){
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expected * 2) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity){
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Find the slot of a key, or the empty slot where it would go.
+     *
+     * @param key A packed key.
+     * @return Slot index.
+     */
+    private int slot(long key){
+        int i = StateKey.hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Get the value stored under a key.
+     *
+     * @param key A packed key.
+     * @return The value, or ABSENT if the key isn't in the table.
+     */
+    protected int get(long key){
+        int i = slot(key);
+        return keys[i] != EMPTY ? values[i] : ABSENT;
+    }
+
+    protected boolean containsKey(long key){
+        return keys[slot(key)] != EMPTY;
+    }
+
+    /**
+     * Insert or replace the value stored under a key.
+     *
+     * @param key   A packed key.
+     * @param value The value to store.
+     */
+    protected void put(long key, int value){
+        int i = slot(key);
+        if (keys[i] == EMPTY) {
+            keys[i] = key;
+            size++;
+            values[i] = value;
+            if (size * 2 > keys.length) grow();
+        }
+        else values[i] = value;
+    }
+
+    /**
+     * Remove a key from the table.
+     * The entries following it in the probe sequence are shifted back to close the gap.
+     *
+     * @param key A packed key.
+     * @return The removed value, or ABSENT if the key wasn't in the table.
+     */
+    protected int remove(long key){
+        int i = slot(key);
+        if (keys[i] == EMPTY) return ABSENT;
+        int removed = values[i];
+        size--;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == EMPTY) break;
+            int home = StateKey.hash(keys[j]) & mask;
+            // Move entry j into the gap at i, unless its home slot lies cyclically in (i, j]:
+            if (i <= j ? (i < home && home <= j) : (i < home || home <= j)) continue;
+            keys[i] = keys[j]; values[i] = values[j];
+            i = j;
+        }
+        keys[i] = EMPTY;
+        return removed;
+    }
+
+    protected int size(){
+        return size;
+    }
+
+    protected boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries, keeping the allocated table.
+     */
+    protected void clear(){
+        if (size == 0) return;
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private void grow(){
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i]; values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Apply an action to every stored value, in table order.
+     *
+     * @param action Action to apply.
+     */
+    protected void forEach(IntConsumer action){
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) action.accept(values[i]);
+        }
+    }
+}
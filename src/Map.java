@@ -1,22 +1,75 @@
 import java.awt.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.*;
 import java.util.List;
 
 public class Map {
 
-    private char[][] board;
+    private PackedBoard board;
+    private int rows, cols;
     private int[][] tunnelPairs;
     private int[] charCounts;
-    private int goalX, goalY;
-    private HashMap<Point, Integer> distToGoal;
+    private int startX, startY, goalX, goalY;
+    private HashMap<Point, Integer> distToGoal, distFromStart;
     private List<Point> tunnels = new ArrayList<>();
-    protected static final int[] ENTER = {};
+    /**
+     * The heuristic of every cell (to the goal, and from the start for backward searches),
+     * flattened by row (index y * cols + x).
+     * Split into blocks of BLOCK_ROWS rows, each computed on first access.
+     * Blocks are published with release and read with acquire (INT_BLOCKS, BYTE_BLOCKS),
+     * so searches on several threads can share the map: a thread that sees a block sees it filled.
+     * Two threads may compute the same block, which is harmless.
+     */
+    private int[][] heuristicBlocks, reverseHeuristicBlocks;
+    private static final int BLOCK_ROWS = 64;
+    /**
+     * The most columns a board can have: a block of the transition table (BLOCK_ROWS rows, 9 bytes per cell)
+     * is one array, indexed by int.
+     */
+    protected static final int MAX_COLS = (Integer.MAX_VALUE - 8) / (BLOCK_ROWS * 9);
+    private static final VarHandle INT_BLOCKS = MethodHandles.arrayElementVarHandle(int[][].class),
+            BYTE_BLOCKS = MethodHandles.arrayElementVarHandle(byte[][].class);
+    /**
+     * The board compiled into a transition table (see compileTransitions):
+     * one byte per cell and direction code, describing the step from the cell in that direction.
+     * The NO_DIR slot (not a move) describes the 'Ent' step.
+     * A step's byte is its cost when supplied (0 if it is never legal), plus the NEEDS_SUPPLY and SUPPLIES flags.
+     * Split into blocks of BLOCK_ROWS rows like the heuristic, so a huge board is only compiled where it is searched.
+     */
+    private byte[][] transitionBlocks;
+    protected static final int COST_MASK = 0x0F, NEEDS_SUPPLY = 0x10, SUPPLIES = 0x20;
+    /**
+     * Landmark lower bounds, combined with the heuristic (null if no landmarks were requested).
+     */
+    private Landmarks landmarks;
+    private long fingerprint;
+    private boolean fingerprinted = false;
 
-    protected Map(char[][] board, int[][] tunnels, int startX, int startY, int goalX, int goalY, int[] charCounts) {
-        this.board = board; this.tunnelPairs = tunnels; this.goalX = goalX; this.goalY = goalY;
+    /**
+     * Constructor.
+     *
+     * @param board      The board.
+     * @param tunnels    The entrances of each tunnel.
+     * @param startX     x-coordinate of the start.
+     * @param startY     y-coordinate of the start.
+     * @param goalX      x-coordinate of the goal.
+     * @param goalY      y-coordinate of the goal.
+     * @param charCounts Number of cells of each kind.
+     */
+    protected Map(PackedBoard board, int[][] tunnels,
+                  int startX, int startY, int goalX, int goalY, int[] charCounts) {
+        this.board = board; this.rows = board.rows(); this.cols = board.cols();
+        this.tunnelPairs = tunnels; this.goalX = goalX; this.goalY = goalY;
+        this.startX = startX; this.startY = startY;
         this.charCounts = charCounts;
         Point start = new Point(startX, startY), goal = new Point(goalX, goalY);
+        SearchEvents.TunnelDijkstra event = SearchEvents.beginTunnelDijkstra();
         tunnelDijkstra(start, goal);
+        SearchEvents.end(event, this.tunnels.size());
+        heuristicBlocks = new int[(rows + BLOCK_ROWS - 1) / BLOCK_ROWS][];
+        reverseHeuristicBlocks = new int[heuristicBlocks.length][];
+        transitionBlocks = new byte[heuristicBlocks.length][];
     }
 
     /**
@@ -26,6 +79,7 @@ public class Map {
      * The distance between entrances to different tunnels is the chebyshev distance (initially).
      * Runs Dijkstra from goal on the set of tunnels, start, and goal.
      * Shortest distances are saved in 'distToGoal'.
+     * Does the same from the start, into 'distFromStart' (for the reverse heuristic).
      *
      * @param start Start location.
      * @param goal Goal location.
@@ -34,7 +88,6 @@ public class Map {
         // Initialize variables and create nodes:
         List<Point> points = new ArrayList<>();
         HashMap<Point, Integer> tunnelNumber = new HashMap<>();
-        distToGoal = new HashMap<>();
         for (int i = 0; i < tunnelPairs.length; i++) {
             int[] t = tunnelPairs[i];
             if (t[0] == -1) continue;
@@ -44,43 +97,217 @@ public class Map {
         }
         tunnels.addAll(points);
         points.add(start); points.add(goal);
-        // Run Dijkstra:
-        PriorityQueue<Point> pq = new PriorityQueue<>(Comparator.comparingInt(distToGoal::get));
+        distToGoal = dijkstra(points, tunnelNumber, goal);
+        distFromStart = dijkstra(points, tunnelNumber, start);
+    }
+
+    /**
+     * Dijkstra on the complete graph of the given points (see tunnelDijkstra).
+     *
+     * @param points       The points.
+     * @param tunnelNumber The tunnel number of each tunnel entrance.
+     * @param source       The point to find distances to (and from).
+     * @return Shortest distance of every point.
+     */
+    private HashMap<Point, Integer> dijkstra(List<Point> points, HashMap<Point, Integer> tunnelNumber, Point source) {
+        HashMap<Point, Integer> dist = new HashMap<>();
+        PriorityQueue<Point> pq = new PriorityQueue<>(Comparator.comparingInt(dist::get));
         for (Point p : points) {
-            distToGoal.put(p, Integer.MAX_VALUE);
+            dist.put(p, Integer.MAX_VALUE);
         }
-        distToGoal.put(goal, 0);
-        pq.add(goal);
+        dist.put(source, 0);
+        pq.add(source);
         while (!pq.isEmpty()) {
             Point current = pq.poll();
-            int cost = distToGoal.get(current);
+            int cost = dist.get(current);
             for (Point p : points) {
                 if (p.equals(current)) continue;
                 int weight = chebyshev(p, current);
                 if (Objects.equals(tunnelNumber.get(p), tunnelNumber.get(current))) {
                     weight = Math.min(weight, 2);
                 }
-                if (distToGoal.get(p) > cost + weight){  // Relax edge
-                    distToGoal.put(p, cost + weight);
+                if (dist.get(p) > cost + weight){  // Relax edge
+                    dist.put(p, cost + weight);
                     pq.add(p);
                 }
             }
         }
+        return dist;
+    }
+
+    /**
+     * The transition table entry of a step (see transitionBlocks).
+     *
+     * @param x       x-coordinate of the cell the step starts from.
+     * @param y       y-coordinate of the cell the step starts from.
+     * @param dirCode Code of the direction of the step (NO_DIR for 'Ent').
+     * @return The entry.
+     */
+    protected int transition(int x, int y, byte dirCode) {
+        byte[] block = (byte[]) BYTE_BLOCKS.getAcquire(transitionBlocks, y / BLOCK_ROWS);
+        if (block == null) block = compileTransitions(y / BLOCK_ROWS);
+        return block[((y % BLOCK_ROWS) * cols + x) * 9 + dirCode];
+    }
+
+    /**
+     * Compiles one block of the board into the transition table, so generating a successor is a table lookup
+     * instead of bounds checks and the terrain costs.
+     * Only the backtrack rule is left to check when moving, because it depends on the previous move.
+     *
+     * @param b Block number.
+     * @return The compiled block.
+     */
+    private byte[] compileTransitions(int b) {
+        int firstRow = b * BLOCK_ROWS;
+        int rowsInBlock = Math.min(BLOCK_ROWS, rows - firstRow);
+        byte[] block = new byte[rowsInBlock * cols * 9];
+        for (int y = firstRow; y < firstRow + rowsInBlock; y++) {
+            for (int x = 0; x < cols; x++) {
+                int base = ((y - firstRow) * cols + x) * 9;
+                for (byte d = 0; d < 9; d++) {
+                    if (d != NodeStore.NO_DIR) block[base + d] = compileStep(x, y, d);
+                }
+                char ch = charAt(x, y);
+                if (ch >= '0' && ch <= '9') block[base + NodeStore.NO_DIR] = 2;
+            }
+        }
+        BYTE_BLOCKS.setRelease(transitionBlocks, b, block);
+        return block;
+    }
+
+    /**
+     * The transition table entry of a move (not 'Ent').
+     *
+     * @param x       x-coordinate of the cell the step starts from.
+     * @param y       y-coordinate of the cell the step starts from.
+     * @param dirCode Code of the direction of the step.
+     * @return The entry.
+     */
+    private byte compileStep(int x, int y, byte dirCode) {
+        int tx = x + NodeStore.dx(dirCode), ty = y + NodeStore.dy(dirCode);
+        if (tx < 0 || ty < 0 || ty >= rows || tx >= cols) return 0;
+        boolean diagonal = NodeStore.dx(dirCode) != 0 && NodeStore.dy(dirCode) != 0;
+        int cost = cost(tx, ty, diagonal, true);
+        if (cost == -1) return 0;
+        if (cost(tx, ty, diagonal, false) == -1) cost |= NEEDS_SUPPLY;
+        if (charAt(tx, ty) == '*') cost |= SUPPLIES;
+        return (byte) cost;
+    }
+
+    /**
+     * Change a cell of the board: a wall is built, a swamp dries out, a supply is consumed...
+     * Only what depends on the cell is updated, in O(1): the character counts,
+     * and the (compiled) transitions into the cell from its neighbors - the cost of a step depends only on its target.
+     * The heuristic doesn't depend on the costs of the cells (only on distances and tunnels), so it stays admissible.
+     * The landmark bounds do, so they are dropped.
+     * Not to be called while a search of this map runs.
+     *
+     * @param x x-coordinate.
+     * @param y y-coordinate.
+     * @param c The new character: '-', '*', '~', '^' or '#'.
+     * @throws IllegalArgumentException If the cell is outside the board, is S, G or a tunnel entrance,
+     *                                  or the new character isn't one of the above.
+     */
+    protected void setCell(int x, int y, char c) {
+        if (x < 0 || y < 0 || y >= rows || x >= cols) {
+            throw new IllegalArgumentException("Cell out of the board: " + x + "," + y);
+        }
+        int old = board.get(x, y), kind = PackedBoard.kind(c);
+        if (start(x, y) || goal(x, y) || old <= 9 || kind <= 9 || kind == PackedBoard.OTHER) {
+            throw new IllegalArgumentException("Can't change " + charAt(x, y) + " at " + x + "," + y + " to " + c);
+        }
+        if (old == kind) return;
+        board.set(x, y, kind);
+        charCounts[old]--;
+        charCounts[kind]++;
+        for (byte d = 0; d < 9; d++) {
+            if (d == NodeStore.NO_DIR) continue;
+            int fromX = x - NodeStore.dx(d), fromY = y - NodeStore.dy(d);
+            if (fromX < 0 || fromY < 0 || fromY >= rows || fromX >= cols) continue;
+            byte[] block = (byte[]) BYTE_BLOCKS.getAcquire(transitionBlocks, fromY / BLOCK_ROWS);
+            if (block != null) block[((fromY % BLOCK_ROWS) * cols + fromX) * 9 + d] = compileStep(fromX, fromY, d);
+        }
+        landmarks = null;
+        fingerprinted = false;
+    }
+
+    /**
+     * The tunnels: for each tunnel digit, the coordinates of its entrances {x1, y1, x2, y2}, or x1 == -1 if none.
+     */
+    protected int[][] tunnelPairs() {
+        return tunnelPairs;
     }
 
     protected int[] charCounts() {
         return this.charCounts;
     }
 
+    /**
+     * The character of a cell (S and G by their locations, '?' for an unknown character).
+     *
+     * @param x x-coordinate.
+     * @param y y-coordinate.
+     * @return The character.
+     */
+    protected char charAt(int x, int y) {
+        int kind = board.get(x, y);
+        if (kind == PackedBoard.OTHER) return goal(x, y) ? 'G' : '?';
+        if (kind == PackedBoard.FLOOR && start(x, y)) return 'S';
+        return PackedBoard.symbol(kind);
+    }
+
+    /**
+     * A hash of the board and the goal (not the start), to recognize the same map and goal in later runs.
+     * Computed on first use.
+     *
+     * @return The fingerprint.
+     */
+    protected long fingerprint() {
+        if (!fingerprinted) {
+            fingerprint = (board.fingerprint() ^ ((long) goalX << 32 | goalY)) * 0x94D049BB133111EBL;
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
+    protected int rows() {
+        return rows;
+    }
+
+    protected int cols() {
+        return cols;
+    }
+
+    protected boolean start(int x, int y) {
+        return x == startX && y == startY;
+    }
+
+    protected int startX() {
+        return startX;
+    }
+
+    protected int startY() {
+        return startY;
+    }
+
+    protected int goalX() {
+        return goalX;
+    }
+
+    protected int goalY() {
+        return goalY;
+    }
+
     /**
      * The goals function of the problem.
      * In this problem, the goal is a specific x,y location.
      *
-     * @param n A node to check.
+     * @param nodes The node store.
+     * @param n     A node to check.
      * @return True iff the node is the location of the goal.
      */
-    protected boolean goal(Node n) {
-        return goal(n.x(), n.y());
+    protected boolean goal(NodeStore nodes, int n) {
+        return goal(nodes.x(n), nodes.y(n));
     }
 
     protected boolean goal(int x, int y) {
@@ -111,6 +338,99 @@ public class Map {
         return Math.max(Math.abs(x1 - x2), Math.abs(y1 - y2));
     }
 
+    /**
+     * The heuristic function, looked up in the precomputed table.
+     * A block of rows is computed the first time any cell in it is queried.
+     *
+     * @param x x-coordinate.
+     * @param y y-coordinate.
+     * @return The heuristic of the given location.
+     */
+    protected int heuristic(int x, int y) {
+        int[] block = (int[]) INT_BLOCKS.getAcquire(heuristicBlocks, y / BLOCK_ROWS);
+        if (block == null) block = computeHeuristicBlock(heuristicBlocks, y / BLOCK_ROWS, true);
+        return block[(y % BLOCK_ROWS) * cols + x];
+    }
+
+    /**
+     * The heuristic of a state: the heuristic of its location,
+     * or the landmark bound if there are landmarks and it's larger.
+     *
+     * @param x        x-coordinate.
+     * @param y        y-coordinate.
+     * @param supplied Whether the state is supplied.
+     * @return The heuristic of the given state.
+     */
+    protected int heuristic(int x, int y, boolean supplied) {
+        int h = heuristic(x, y);
+        if (landmarks != null) h = Math.max(h, landmarks.bound(x, y, supplied));
+        return h;
+    }
+
+    /**
+     * The landmarks of this map.
+     *
+     * @return The landmarks, or null if none were requested.
+     */
+    protected Landmarks landmarks() {
+        return landmarks;
+    }
+
+    /**
+     * Combine landmark lower bounds with the heuristic (they are dropped when a cell changes, see setCell).
+     *
+     * @param landmarks The landmarks, precomputed on this map.
+     */
+    protected void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * The heuristic function for searching backwards, from the goal to the start.
+     * A lower bound on the cost of reaching (x, y) from the start:
+     * the minimum of the chebyshev distance from start,
+     * and chebyshev distance to the closest tunnel entrance + distance from start to that tunnel.
+     *
+     * @param x x-coordinate.
+     * @param y y-coordinate.
+     * @return The reverse heuristic of the given location.
+     */
+    protected int reverseHeuristic(int x, int y) {
+        int[] block = (int[]) INT_BLOCKS.getAcquire(reverseHeuristicBlocks, y / BLOCK_ROWS);
+        if (block == null) block = computeHeuristicBlock(reverseHeuristicBlocks, y / BLOCK_ROWS, false);
+        return block[(y % BLOCK_ROWS) * cols + x];
+    }
+
+    /**
+     * Fill one block of a heuristic table.
+     *
+     * @param blocks The table.
+     * @param b      Block number.
+     * @param toGoal True for the heuristic table, false for the reverse heuristic table.
+     * @return The filled block.
+     */
+    private int[] computeHeuristicBlock(int[][] blocks, int b, boolean toGoal) {
+        int firstRow = b * BLOCK_ROWS;
+        int rowsInBlock = Math.min(BLOCK_ROWS, rows - firstRow);
+        int[] block = new int[rowsInBlock * cols];
+        for (int row = 0; row < rowsInBlock; row++) {
+            for (int x = 0; x < cols; x++) {
+                block[row * cols + x] = toGoal ? computeHeuristic(x, firstRow + row)
+                        : computeReverseHeuristic(x, firstRow + row);
+            }
+        }
+        INT_BLOCKS.setRelease(blocks, b, block);
+        return block;
+    }
+
+    private int computeReverseHeuristic(int x, int y) {
+        int costHeuristic = chebyshev(x, y, startX, startY);
+        for (Point t : tunnels) {
+            costHeuristic = Math.min(costHeuristic, chebyshev(x, y, t.x, t.y) + distFromStart.get(t));
+        }
+        return costHeuristic;
+    }
+
     /**
      * The heuristic function.
      * If the location is the goal, heuristic is 0.
@@ -124,7 +444,7 @@ public class Map {
      * @param y y-coordinate.
      * @return The heuristic of the given location.
      */
-    protected int heuristic(int x, int y) {
+    private int computeHeuristic(int x, int y) {
         if (goal(x, y)) return 0;
         int costHeuristic = chebyshev(x, y, goalX, goalY);
         for (Point t : tunnels) {
@@ -136,12 +456,20 @@ public class Map {
 
     /**
      * The 'f' function for the informed searches.
+     * h(n) is cached in the node the first time it is needed.
      *
-     * @param n A node.
+     * @param nodes The node store.
+     * @param n     A node.
      * @return The f(n) = g(n) + h(n) value of n.
      */
-    protected int f(Node n) {
-        return n.getCost() + heuristic(n.x(), n.y());
+    protected int f(NodeStore nodes, int n) {
+        int h = nodes.h(n);
+        if (h == -1) {
+            h = heuristic(nodes.x(n), nodes.y(n), nodes.isSupplied(n));
+            nodes.setH(n, h);
+            nodes.counters().heuristicEvaluated();
+        }
+        return nodes.getCost(n) + h;
     }
 
     /**
@@ -153,7 +481,7 @@ public class Map {
      * @return The cost of moving to that space if move is legal, else -1.
      */
     protected int cost(int x, int y, boolean diagonal, boolean supplied) {
-        char ch = board[y][x];
+        char ch = charAt(x, y);
         switch (ch) {
             case '#': return -1;
             case '-', '*', 'S': return 1;
@@ -172,58 +500,386 @@ public class Map {
      * Helper function for "Ent" direction.
      * Checks if space is a tunnel, and finds the other side.
      *
+     * @param nodes   The node store.
      * @param current The node we're moving from.
+     * @return The new node if the move is legal, else NodeStore.NONE.
      */
-    private Node enterTunnel(Node current) {
-        int x = current.x(), y = current.y();
-        int[] previousDir = current.getDir();
-        char ch = board[y][x];
-        if (ch >= '0' && ch <= '9' && previousDir.length != 0) {
-            int number = Integer.parseInt(String.valueOf(ch));
-            int[] pair = tunnelPairs[number];
+    private int enterTunnel(NodeStore nodes, int current) {
+        int x = nodes.x(current), y = nodes.y(current);
+        if (transition(x, y, NodeStore.NO_DIR) != 0 && nodes.getDir(current) != NodeStore.ENTER) {
+            int[] pair = tunnelPairs[charAt(x, y) - '0'];
             if (x == pair[0] && y == pair[1]) {
                 x = pair[2]; y = pair[3];
             }
             else if (x == pair[2] && y == pair[3]) {
                 x = pair[0]; y = pair[1];
             }
-            return new Node(x, y, current.getCost() + 2, ch, ENTER, current);
+            return nodes.newNode(x, y, nodes.getCost(current) + 2, NodeStore.ENTER,
+                    nodes.isSupplied(current), current);
+        }
+        return NodeStore.NONE;
+    }
+
+    /**
+     * The other side of a tunnel, as a cell index, for the relaxed moves
+     * (only used on boards whose states fit an int index, see Landmarks and Hierarchy).
+     *
+     * @param x x-coordinate of a tunnel entrance.
+     * @param y y-coordinate of a tunnel entrance.
+     * @return The cell (y * cols + x) of the other entrance.
+     */
+    private int tunnelExitCell(int x, int y) {
+        int[] pair = tunnelPairs[charAt(x, y) - '0'];
+        if (x == pair[0] && y == pair[1]) {
+            x = pair[2]; y = pair[3];
+        }
+        else if (x == pair[2] && y == pair[3]) {
+            x = pair[0]; y = pair[1];
         }
-        return null;
+        return y * cols + x;
     }
 
     /**
      * Returns the coordinates after move in requested direction, and the cost.
      * Checks if move is legal: no walls, smooth floor requires being supplied,
      * no going back in opposite of previous direction (unless supplying).
-     * If move is illegal, returns null.
-     *
-     * @return An int array [new x, new y, cost of move, char in next spot, supplied] if valid, else null.
-     */
-    protected Node move(Node current, int[] dir) {
-        if (dir.length == 0) return enterTunnel(current);  // If direction is 'Ent'
-        int x = current.x(), y = current.y();
-        int[] previousDir = current.getDir();
-        boolean supplied = current.isSupplied();
-        x += dir[0]; y += dir[1];  // Update coordinates
-        // Verify that new coordinates are within borders:
-        if (x >= 0 && y >= 0 & y < board.length && x < board[0].length) {
-            char ch = board[y][x];
-            // Verify that target location is not a wall or '~' without supplies:
-            if (ch != '#' && (supplied || ch != '~')) {
-                // Verify that target location is not an immediate backtrack (excluding supplying):
-                if ((ch == '*' && !supplied)            // The new space is a '*', and we weren't supplied before.
-                        || previousDir == null          // This is the first move.
-                        || previousDir.length == 0      // We just came from a tunnel (and we're mot going into it).
-                        || !(previousDir[0] + dir[0] == 0 && previousDir[1] + dir[1] == 0)) {
-                    boolean diagonal = dir[0] != 0 && dir[1] != 0;
-                    int moveCost = cost(x, y, diagonal, supplied);
-                    if (moveCost != -1){
-                        return new Node(x, y, moveCost + current.getCost(), ch, dir, current);
-                    }
-                }
+     * If move is illegal, returns NodeStore.NONE.
+     * The new node is written into the node store.
+     *
+     * @param nodes   The node store.
+     * @param current The node we're moving from.
+     * @param dir     The direction of the move.
+     * @return The new node if the move is legal, else NodeStore.NONE.
+     */
+    protected int move(NodeStore nodes, int current, int[] dir) {
+        if (dir.length == 0) return enterTunnel(nodes, current);  // If direction is 'Ent'
+        byte dirCode = NodeStore.dirCode(dir);
+        int step = transition(nodes.x(current), nodes.y(current), dirCode);
+        int moveCost = stepCost(nodes, current, dirCode, step);
+        if (moveCost == -1) return NodeStore.NONE;
+        return nodes.newNode(nodes.x(current) + dir[0], nodes.y(current) + dir[1], moveCost + nodes.getCost(current),
+                dirCode, nodes.isSupplied(current) || (step & SUPPLIES) != 0, current);
+    }
+
+    /**
+     * The legality checks of move (for a direction other than 'Ent'), without creating a node.
+     *
+     * @param nodes   The node store.
+     * @param current The node we're moving from.
+     * @param dirCode The code of the direction of the move.
+     * @param step    The transition table entry of the move.
+     * @return The cost of the move if it is legal, else -1.
+     */
+    private int stepCost(NodeStore nodes, int current, byte dirCode, int step) {
+        boolean supplied = nodes.isSupplied(current);
+        // Verify that target location is within borders, not a wall, and not '~' without supplies:
+        if (!legal(step, supplied)) return -1;
+        byte previousDir = nodes.getDir(current);
+        // Verify that target location is not an immediate backtrack (excluding supplying):
+        if (((step & SUPPLIES) != 0 && !supplied)         // The new space is a '*', and we weren't supplied before.
+                || previousDir == NodeStore.ENTER      // We just came from a tunnel (and we're mot going into it).
+                || previousDir + dirCode != 8) {       // Not opposite (the start's NO_DIR is opposite nothing).
+            return step & COST_MASK;
+        }
+        return -1;
+    }
+
+    /**
+     * Whether a transition table entry is a legal step (ignoring the backtrack rule).
+     */
+    protected static boolean legal(int step, boolean supplied) {
+        return (step & COST_MASK) != 0 && (supplied || (step & NEEDS_SUPPLY) == 0);
+    }
+
+    /**
+     * The moves from a state of the relaxed state space, used for precomputed distances (see Landmarks and Hierarchy):
+     * a state is a cell and whether it's supplied (index (y * cols + x) * 2, + 1 if supplied),
+     * with the moves of the transition table, but without the backtrack rule and without stopping at G.
+     * Every real path is a path here with the same cost.
+     *
+     * @param state A state.
+     * @param out   Array to fill with pairs of (next state, cost).
+     * @return The number of ints written.
+     */
+    protected int relaxedSuccessors(int state, int[] out) {
+        int cell = state >> 1, x = cell % cols, y = cell / cols, n = 0;
+        boolean supplied = (state & 1) != 0;
+        for (byte d = 0; d < 9; d++) {
+            if (d == NodeStore.NO_DIR) continue;
+            int step = transition(x, y, d);
+            if (!legal(step, supplied)) continue;
+            int next = cell + NodeStore.dy(d) * cols + NodeStore.dx(d);
+            out[n++] = next * 2 + (supplied || (step & SUPPLIES) != 0 ? 1 : 0);
+            out[n++] = step & COST_MASK;
+        }
+        if (transition(x, y, NodeStore.NO_DIR) != 0) {
+            out[n++] = tunnelExitCell(x, y) * 2 + (state & 1);
+            out[n++] = 2;
+        }
+        return n;
+    }
+
+    /**
+     * The relaxed moves into a state.
+     *
+     * @param state A state.
+     * @param out   Array to fill with pairs of (previous state, cost).
+     * @return The number of ints written.
+     */
+    protected int relaxedPredecessors(int state, int[] out) {
+        int cell = state >> 1, x = cell % cols, y = cell / cols, n = 0;
+        boolean supplied = (state & 1) != 0;
+        for (byte d = 0; d < 9; d++) {
+            if (d == NodeStore.NO_DIR) continue;
+            int px = x - NodeStore.dx(d), py = y - NodeStore.dy(d);
+            if (px < 0 || py < 0 || py >= rows || px >= cols) continue;
+            int step = transition(px, py, d), previous = (py * cols + px) * 2;
+            boolean supplies = (step & SUPPLIES) != 0;
+            if (supplied && legal(step, true)) {
+                out[n++] = previous + 1;
+                out[n++] = step & COST_MASK;
             }
+            if (supplied == supplies && legal(step, false)) {  // Unsupplied before: supplied only by a '*'.
+                out[n++] = previous;
+                out[n++] = step & COST_MASK;
+            }
+        }
+        if (transition(x, y, NodeStore.NO_DIR) != 0) {  // Tunnels go both ways.
+            out[n++] = tunnelExitCell(x, y) * 2 + (state & 1);
+            out[n++] = 2;
+        }
+        return n;
+    }
+
+    /**
+     * Jump point search version of move.
+     * In a run of plain cells ('-' and 'S', which all cost 1 to enter from any direction)
+     * many paths of the same cost lead to the same cell, and only one of them needs to be searched:
+     * the one that moves diagonally first and turns only where an obstacle or a different cell forces it to.
+     * So from a plain cell only the directions such a path could continue in are expanded,
+     * and instead of one step, the move continues in the same direction until it reaches a jump point:
+     * a cell that isn't plain ('*', tunnels, the goal and the other terrains all end a jump),
+     * or a plain cell with a forced neighbour (next to a cell that isn't plain),
+     * or, when moving diagonally, a cell from which a straight jump reaches a jump point.
+     * A jump that runs into a wall or the border without reaching one returns NodeStore.NONE.
+     * The new node's parent is the node the jump started from (see NodeStore.getPath for the path).
+     *
+     * @param nodes   The node store.
+     * @param current The node we're jumping from.
+     * @param dir     The direction of the jump.
+     * @return The new node if the jump is legal and reaches a jump point, else NodeStore.NONE.
+     */
+    protected int jump(NodeStore nodes, int current, int[] dir) {
+        if (dir.length == 0) return enterTunnel(nodes, current);  // If direction is 'Ent'
+        int x = nodes.x(current), y = nodes.y(current), dx = dir[0], dy = dir[1];
+        byte previousDir = nodes.getDir(current);
+        boolean supplied = nodes.isSupplied(current);
+        // Only the start and nodes coming out of a tunnel have no direction to prune by:
+        if (plain(x, y) && previousDir != NodeStore.NO_DIR && previousDir != NodeStore.ENTER
+                && prunable(nodes, current)
+                && !canonical(x, y, NodeStore.dx(previousDir), NodeStore.dy(previousDir), dx, dy)) {
+            return NodeStore.NONE;
+        }
+        byte dirCode = NodeStore.dirCode(dir);
+        int step = transition(x, y, dirCode);
+        int cost = stepCost(nodes, current, dirCode, step);
+        if (cost == -1) return NodeStore.NONE;
+        x += dx; y += dy;
+        boolean stop = shortcutsBlocked(previousDir, dx, dy);
+        while (plain(x, y) && !stop && !jumpPoint(x, y, dx, dy, supplied)) {
+            step = transition(x, y, dirCode);
+            if (!legal(step, supplied)) return NodeStore.NONE;  // Dead end.
+            x += dx; y += dy;
+            cost += step & COST_MASK;
+        }
+        return nodes.newNode(x, y, cost + nodes.getCost(current), dirCode,
+                supplied || (step & SUPPLIES) != 0, current);
+    }
+
+    /**
+     * Pruning relies on paths that avoid a cell by turning one cell earlier.
+     * If that earlier cell is where the path came from a different direction,
+     * the turn may be an immediate backtrack there, which isn't allowed (no shortcut, so no pruning).
+     *
+     * @param nodes   The node store.
+     * @param current A node produced by a move (not the start, not 'Ent').
+     * @return Whether the successors of the node may be pruned.
+     */
+    private boolean prunable(NodeStore nodes, int current) {
+        int parent = nodes.parent(current);
+        if (Math.abs(nodes.x(current) - nodes.x(parent)) > 1 || Math.abs(nodes.y(current) - nodes.y(parent)) > 1) {
+            return true;  // The cell before it was passed by the same jump.
+        }
+        byte dir = nodes.getDir(current);
+        return !shortcutsBlocked(nodes.getDir(parent), NodeStore.dx(dir), NodeStore.dy(dir));
+    }
+
+    /**
+     * Whether, after a move in direction previousDir, the first step of some shortcut (see canonical)
+     * around the next cell in direction (dx, dy) would be an immediate backtrack.
+     */
+    private static boolean shortcutsBlocked(byte previousDir, int dx, int dy) {
+        if (previousDir == NodeStore.NO_DIR || previousDir == NodeStore.ENTER) return false;
+        int bx = -NodeStore.dx(previousDir), by = -NodeStore.dy(previousDir);  // The backtrack direction.
+        if (dx != 0 && dy != 0) return (bx == 0 && by == dy) || (bx == dx && by == 0);
+        if (dx != 0) return by != 0 && (bx == dx || bx == 0);
+        return bx != 0 && (by == dy || by == 0);
+    }
+
+    /**
+     * Whether a path that reached a plain cell moving (px, py) may continue moving (dx, dy),
+     * i.e. whether every other path to the next cell that avoids this one isn't guaranteed to be as cheap.
+     */
+    private boolean canonical(int x, int y, int px, int py, int dx, int dy) {
+        if (dx == px && dy == py) return true;  // Keep going.
+        if (px != 0 && py != 0) {
+            // After a diagonal move: its straight parts, or turning back around a cell that isn't plain.
+            if ((dx == px && dy == 0) || (dx == 0 && dy == py)) return true;
+            if (dx == -px && dy == py) return !plain(x - px, y);
+            return dx == px && dy == -py && !plain(x, y - py);
+        }
+        // After a straight move: to the side or diagonally forward, next to a cell that isn't plain.
+        if (px != 0) return dy != 0 && (dx == px || dx == 0) && !plain(x, y + dy);
+        return dx != 0 && (dy == py || dy == 0) && !plain(x + dx, y);
+    }
+
+    /**
+     * Whether a plain cell reached moving (dx, dy) is a jump point.
+     */
+    private boolean jumpPoint(int x, int y, int dx, int dy, boolean supplied) {
+        if (dx != 0 && dy != 0) {
+            if ((!plain(x - dx, y) && open(x - dx, y + dy, supplied))
+                    || (!plain(x, y - dy) && open(x + dx, y - dy, supplied))) return true;
+            return straightJumpPoint(x, y, dx, 0, supplied) || straightJumpPoint(x, y, 0, dy, supplied);
+        }
+        // Forced neighbours: a cell on the side that isn't plain, or the cell diagonally forward of it.
+        int sx = dy != 0 ? 1 : 0, sy = dx != 0 ? 1 : 0;
+        return (!plain(x + sx, y + sy) && (open(x + sx, y + sy, supplied) || open(x + dx + sx, y + dy + sy, supplied)))
+                || (!plain(x - sx, y - sy) && (open(x - sx, y - sy, supplied) || open(x + dx - sx, y + dy - sy, supplied)));
+    }
+
+    /**
+     * Whether a straight jump from a cell (not including it) reaches a jump point.
+     */
+    private boolean straightJumpPoint(int x, int y, int dx, int dy, boolean supplied) {
+        while (true) {
+            x += dx; y += dy;
+            if (!open(x, y, supplied)) return false;
+            if (!plain(x, y) || jumpPoint(x, y, dx, dy, supplied)) return true;
+        }
+    }
+
+    /**
+     * Plain cells cost 1 to enter from any direction, and don't change the supply.
+     */
+    private boolean plain(int x, int y) {
+        if (x < 0 || y < 0 || y >= rows || x >= cols) return false;
+        char ch = charAt(x, y);
+        return ch == '-' || ch == 'S';
+    }
+
+    /**
+     * Whether a cell can be entered.
+     */
+    private boolean open(int x, int y, boolean supplied) {
+        if (x < 0 || y < 0 || y >= rows || x >= cols) return false;
+        return cost(x, y, false, supplied) != -1;
+    }
+
+    /**
+     * The reverse of move, for searching backwards from the goal:
+     * all the states from which one legal move leads to the current state.
+     * Here a state includes the direction of the move that produced it (which decides the legal next moves),
+     * the cost of a node is the cost from it to the goal, and its parent is the state after it.
+     * The move that produced the current state fixes the previous location:
+     * one step back, or the other entrance if it came out of a tunnel.
+     * The previous state may be unsupplied only if the current location is a '*',
+     * and may have been produced by any direction the move rules allow at that location.
+     *
+     * @param nodes   The node store.
+     * @param current The node we're moving back from.
+     * @param out     Array to fill with the new nodes (at least 20 long).
+     * @return The number of new nodes.
+     */
+    protected int predecessors(NodeStore nodes, int current, int[] out) {
+        int x = nodes.x(current), y = nodes.y(current), cost = nodes.getCost(current);
+        byte dir = nodes.getDir(current);
+        boolean supplied = nodes.isSupplied(current);
+        if (dir == NodeStore.ENTER) {
+            // Entering a tunnel keeps the supply, costs 2, and isn't allowed right after leaving one:
+            int[] pair = tunnelPairs[charAt(x, y) - '0'];
+            int px = pair[0], py = pair[1];
+            if (x == pair[0] && y == pair[1]) {
+                px = pair[2]; py = pair[3];
+            }
+            if (goal(px, py)) return 0;  // The search would have stopped at G.
+            return previousStates(nodes, current, px, py, supplied, cost + 2, NodeStore.ENTER, out, 0);
+        }
+        if (dir == NodeStore.NO_DIR) return 0;  // The start state has no previous state.
+        int px = x - NodeStore.dx(dir), py = y - NodeStore.dy(dir);
+        if (px < 0 || py < 0 || py >= rows || px >= cols || goal(px, py)) return 0;
+        char ch = charAt(x, y);
+        if (ch == '*' && !supplied) return 0;  // Stepping onto a '*' supplies, so no move leads to this state.
+        boolean diagonal = NodeStore.dx(dir) != 0 && NodeStore.dy(dir) != 0;
+        // Moving in the opposite of the previous direction is only allowed when stepping onto a new supply:
+        byte opposite = (byte) (8 - dir);
+        int count = 0;
+        int moveCost = cost(x, y, diagonal, supplied);
+        if (moveCost != -1) {
+            count = previousStates(nodes, current, px, py, supplied, cost + moveCost, opposite, out, count);
+        }
+        if (ch == '*' && supplied) {  // Maybe got supplied by this move.
+            moveCost = cost(x, y, diagonal, false);
+            count = previousStates(nodes, current, px, py, false, cost + moveCost, -1, out, count);
+        }
+        return count;
+    }
+
+    /**
+     * The roots of a backward search: every state at the goal (supplied or not, produced by any direction),
+     * with cost 0 and no parent.
+     *
+     * @param nodes The node store.
+     * @param out   Array to fill with the new nodes (at least 20 long).
+     * @return The number of new nodes.
+     */
+    protected int goalStates(NodeStore nodes, int[] out) {
+        int count = previousStates(nodes, NodeStore.NONE, goalX, goalY, false, 0, -1, out, 0);
+        return previousStates(nodes, NodeStore.NONE, goalX, goalY, true, 0, -1, out, count);
+    }
+
+    /**
+     * Helper for predecessors and goalStates: create the states at a location, with every direction that could have produced them.
+     *
+     * @param nodes     The node store.
+     * @param next      The state after them (their parent).
+     * @param x         x-coordinate.
+     * @param y         y-coordinate.
+     * @param supplied  Whether they're supplied.
+     * @param cost      Their cost (to the goal).
+     * @param forbidden A direction they may not have been produced by, or -1.
+     * @param out       Array to add the new nodes to.
+     * @param count     Number of nodes already in the array.
+     * @return The new number of nodes in the array.
+     */
+    private int previousStates(NodeStore nodes, int next, int x, int y, boolean supplied, int cost,
+                               int forbidden, int[] out, int count) {
+        char ch = charAt(x, y);
+        // Walls can't be stood on, and '~' and '*' can only be stood on supplied:
+        if (ch == '#' || (!supplied && (ch == '~' || ch == '*'))) return count;
+        if (start(x, y) && !supplied) {
+            out[count++] = nodes.newNode(x, y, cost, NodeStore.NO_DIR, false, next);
+        }
+        if (ch >= '0' && ch <= '9' && forbidden != NodeStore.ENTER) {
+            out[count++] = nodes.newNode(x, y, cost, NodeStore.ENTER, supplied, next);
+        }
+        for (byte d = 0; d < 9; d++) {
+            if (d == NodeStore.NO_DIR || d == forbidden) continue;
+            int fromX = x - NodeStore.dx(d), fromY = y - NodeStore.dy(d);
+            if (fromX < 0 || fromY < 0 || fromY >= rows || fromX >= cols) continue;
+            if (charAt(fromX, fromY) == '#') continue;
+            out[count++] = nodes.newNode(x, y, cost, d, supplied, next);
         }
-        return null;
+        return count;
     }
 }
@@ -0,0 +1,157 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Position-indexed binary min-heap of nodes, used as the A* open list.
+ * Ordered by f-value, then by serial number (old-first or new-first).
+ * The f-value of each node is cached when it is inserted, so comparisons never call the heuristic,
+ * and every node's position in the heap is kept in the node store, so decrease-key is O(log n).
+ */
+public class NodeHeap implements OpenQueue {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private final NodeStore store;
+    private int[] nodes, fs;
+    private int size;
+    private final boolean oldFirst, indexed;
+
+    /**
+     * Constructor.
+     *
+     * @param store    the nodes.
+     * @param oldFirst which node to prefer in case of equal f-value.
+     */
+    protected NodeHeap(NodeStore store, boolean oldFirst){
+        this.store = store;
+        this.oldFirst = oldFirst;
+        this.indexed = true;
+        this.nodes = new int[DEFAULT_CAPACITY];
+        this.fs = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Copy constructor. The copy does not track the positions stored in the nodes,
+     * so it should only be drained with {@link #poll()} (used for printing).
+     *
+     * @param other Heap to copy.
+     */
+    private NodeHeap(NodeHeap other){
+        this.store = other.store;
+        this.oldFirst = other.oldFirst;
+        this.indexed = false;
+        this.nodes = Arrays.copyOf(other.nodes, other.size);
+        this.fs = Arrays.copyOf(other.fs, other.size);
+        this.size = other.size;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    @Override
+    public int f(int n){
+        return fs[store.heapIndex(n)];
+    }
+
+    @Override
+    public int peekF(){
+        return size == 0 ? Integer.MAX_VALUE : fs[0];
+    }
+
+    @Override
+    public void add(int n, int f){
+        if (size == nodes.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, size << 1);
+            nodes = Arrays.copyOf(nodes, capacity);
+            fs = Arrays.copyOf(fs, capacity);
+        }
+        set(size, n, f);
+        siftUp(size++);
+        if (indexed) store.counters().heapOperation();
+    }
+
+    @Override
+    public int poll(){
+        if (size == 0) return NodeStore.NONE;
+        int min = nodes[0];
+        if (indexed) {
+            store.setHeapIndex(min, -1);
+            store.counters().heapOperation();
+        }
+        size--;
+        if (size > 0) {
+            set(0, nodes[size], fs[size]);
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Decrease-key: the new node takes the old one's position, then is sifted up.
+     */
+    @Override
+    public void replace(int old, int n, int f){
+        int i = store.heapIndex(old);
+        store.setHeapIndex(old, -1);
+        set(i, n, f);
+        siftUp(i);
+        store.counters().heapOperation();
+    }
+
+    /**
+     * Drains a copy of the heap, so it is O(n log n).
+     */
+    @Override
+    public void forEachInOrder(IntConsumer action){
+        NodeHeap copy = new NodeHeap(this);
+        while (!copy.isEmpty()) action.accept(copy.poll());
+    }
+
+    private void set(int i, int n, int f){
+        nodes[i] = n; fs[i] = f;
+        if (indexed) store.setHeapIndex(n, i);
+    }
+
+    /**
+     * Heap order: f-value, then old-first or new-first by serial number.
+     *
+     * @return True iff the node at i should come before the node at j.
+     */
+    private boolean less(int i, int j){
+        if (fs[i] != fs[j]) return fs[i] < fs[j];
+        int si = store.getSerialNumber(nodes[i]), sj = store.getSerialNumber(nodes[j]);
+        return oldFirst ? si < sj : si > sj;
+    }
+
+    private void siftUp(int i){
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i){
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int child = left + 1 < size && less(left + 1, left) ? left + 1 : left;
+            if (!less(child, i)) break;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j){
+        int n = nodes[i], f = fs[i];
+        set(i, nodes[j], fs[j]);
+        set(j, n, f);
+    }
+}
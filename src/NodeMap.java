@@ -0,0 +1,17 @@
+/**
+ * Hash table from packed state keys (see {@link StateKey}) to nodes (see {@link NodeStore}).
+ * A key that isn't in the table has no node: get and remove return NodeStore.NONE.
+ */
+public class NodeMap extends LongIntMap {
+
+    protected NodeMap(){}
+
+    /**
+     * Constructor.
+     *
+     * @param expected Expected number of entries (table is sized to stay at most half full).
+     */
+    protected NodeMap(int expected){
+        super(expected);
+    }
+}
@@ -0,0 +1,311 @@
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays storage for search nodes.
+ * A node is an int index into parallel primitive arrays
+ * (x, y, cost, direction, flags, parent, serial number, cached h, heap position),
+ * so generating a successor writes a few array cells instead of allocating an object.
+ * The arrays grow in fixed-size chunks, so growing never copies node data.
+ * Slots of nodes that are no longer referenced can be released and are reused by later nodes.
+ */
+public class NodeStore {
+
+    protected static final int NONE = -1;
+    /**
+     * Direction codes: (dx + 1) * 3 + (dy + 1) for the eight moves,
+     * NO_DIR (dx = dy = 0) for the start node, and ENTER for the "Ent" move.
+     * A move is the opposite of another iff their codes sum to 8.
+     */
+    protected static final byte NO_DIR = 4, ENTER = 9;
+    private static final byte SUPPLIED = 1, OUT = 2;
+    private static final int CHUNK_BITS = 12, CHUNK_SIZE = 1 << CHUNK_BITS, CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Map map;
+    private int[][] xs, ys, costs, parents, serials, hs, heapIndexes;
+    private byte[][] dirs, flags;
+    private int chunks = 0, size = 0;
+    private int[] free = new int[CHUNK_SIZE];
+    private int freeCount = 0;
+    private int countCreatedNodes = 0;
+    private final SearchCounters counters = new SearchCounters();
+
+    /**
+     * Constructor.
+     *
+     * @param map The board the nodes are on (used for printing).
+     */
+    protected NodeStore(Map map){
+        this.map = map;
+        int outer = 16;
+        xs = new int[outer][]; ys = new int[outer][]; costs = new int[outer][];
+        parents = new int[outer][]; serials = new int[outer][]; hs = new int[outer][];
+        heapIndexes = new int[outer][];
+        dirs = new byte[outer][]; flags = new byte[outer][];
+    }
+
+    /**
+     * Create a node.
+     *
+     * @param x        x-coordinate.
+     * @param y        y-coordinate.
+     * @param cost     The cost of reaching the node (from start).
+     * @param dir      Code of the direction of movement that produced the node.
+     * @param supplied Whether the robot is supplied at this node.
+     * @param parent   The previous node.
+     * @return The new node.
+     */
+    protected int newNode(int x, int y, int cost, byte dir, boolean supplied, int parent){
+        int n = allocate();
+        int c = n >>> CHUNK_BITS, i = n & CHUNK_MASK;
+        xs[c][i] = x; ys[c][i] = y; costs[c][i] = cost;
+        dirs[c][i] = dir; flags[c][i] = supplied ? SUPPLIED : 0;
+        parents[c][i] = parent;
+        hs[c][i] = -1; heapIndexes[c][i] = -1;
+        countCreatedNodes++;
+        serials[c][i] = countCreatedNodes;
+        return n;
+    }
+
+    /**
+     * Create the start node. It isn't counted as a created node.
+     *
+     * @param x x-coordinate.
+     * @param y y-coordinate.
+     * @return The start node.
+     */
+    protected int newStart(int x, int y){
+        int n = newNode(x, y, 0, NO_DIR, false, NONE);
+        countCreatedNodes--;
+        serials[n >>> CHUNK_BITS][n & CHUNK_MASK] = 0;
+        return n;
+    }
+
+    /**
+     * Release a node that is no longer referenced, so its slot can be reused.
+     *
+     * @param n Node to release.
+     */
+    protected void release(int n){
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount << 1);
+        free[freeCount++] = n;
+    }
+
+    private int allocate(){
+        if (freeCount > 0) return free[--freeCount];
+        if (size == chunks << CHUNK_BITS) addChunk();
+        return size++;
+    }
+
+    private void addChunk(){
+        if (chunks == xs.length) {
+            int outer = chunks << 1;
+            xs = Arrays.copyOf(xs, outer); ys = Arrays.copyOf(ys, outer); costs = Arrays.copyOf(costs, outer);
+            parents = Arrays.copyOf(parents, outer); serials = Arrays.copyOf(serials, outer);
+            hs = Arrays.copyOf(hs, outer); heapIndexes = Arrays.copyOf(heapIndexes, outer);
+            dirs = Arrays.copyOf(dirs, outer); flags = Arrays.copyOf(flags, outer);
+        }
+        xs[chunks] = new int[CHUNK_SIZE]; ys[chunks] = new int[CHUNK_SIZE]; costs[chunks] = new int[CHUNK_SIZE];
+        parents[chunks] = new int[CHUNK_SIZE]; serials[chunks] = new int[CHUNK_SIZE];
+        hs[chunks] = new int[CHUNK_SIZE]; heapIndexes[chunks] = new int[CHUNK_SIZE];
+        dirs[chunks] = new byte[CHUNK_SIZE]; flags[chunks] = new byte[CHUNK_SIZE];
+        chunks++;
+    }
+
+    /**
+     * Reset a node (not supplied, not out). Used to reset start in between rounds of IDA*.
+     *
+     * @param n Node to reset.
+     */
+    protected void reset(int n){
+        int c = n >>> CHUNK_BITS, i = n & CHUNK_MASK;
+        parents[c][i] = NONE;
+        costs[c][i] = 0;
+        dirs[c][i] = NO_DIR;
+        flags[c][i] = 0;
+    }
+
+    protected int x(int n){
+        return xs[n >>> CHUNK_BITS][n & CHUNK_MASK];
+    }
+
+    protected int y(int n){
+        return ys[n >>> CHUNK_BITS][n & CHUNK_MASK];
+    }
+
+    protected int getCost(int n){
+        return costs[n >>> CHUNK_BITS][n & CHUNK_MASK];
+    }
+
+    protected byte getDir(int n){
+        return dirs[n >>> CHUNK_BITS][n & CHUNK_MASK];
+    }
+
+    protected int parent(int n){
+        return parents[n >>> CHUNK_BITS][n & CHUNK_MASK];
+    }
+
+    protected int getSerialNumber(int n){
+        return serials[n >>> CHUNK_BITS][n & CHUNK_MASK];
+    }
+
+    protected boolean isSupplied(int n){
+        return (flags[n >>> CHUNK_BITS][n & CHUNK_MASK] & SUPPLIED) != 0;
+    }
+
+    /**
+     * Each state is defined by: x,y coordinates, and whether the robot is supplied at that point.
+     *
+     * @param n A node.
+     * @return The packed state key of the node.
+     */
+    protected long ID(int n){
+        int c = n >>> CHUNK_BITS, i = n & CHUNK_MASK;
+        return StateKey.pack(xs[c][i], ys[c][i], (flags[c][i] & SUPPLIED) != 0);
+    }
+
+    /**
+     * Like ID, but including the direction of the move that produced the node.
+     *
+     * @param n A node.
+     * @return The packed state key (with direction) of the node.
+     */
+    protected long directedID(int n){
+        return StateKey.pack(x(n), y(n), isSupplied(n), getDir(n));
+    }
+
+    /**
+     * Cached heuristic value (see Map.f).
+     *
+     * @return The cached value, or -1 if not computed yet.
+     */
+    protected int h(int n){
+        return hs[n >>> CHUNK_BITS][n & CHUNK_MASK];
+    }
+
+    protected void setH(int n, int h){
+        hs[n >>> CHUNK_BITS][n & CHUNK_MASK] = h;
+    }
+
+    /**
+     * Position in the A* open list (see NodeHeap).
+     *
+     * @return The position, or -1 if not in it.
+     */
+    protected int heapIndex(int n){
+        return heapIndexes[n >>> CHUNK_BITS][n & CHUNK_MASK];
+    }
+
+    protected void setHeapIndex(int n, int index){
+        heapIndexes[n >>> CHUNK_BITS][n & CHUNK_MASK] = index;
+    }
+
+    /**
+     * Whether the node was marked 'out' (expanded) by the depth-first searches.
+     */
+    protected boolean isOut(int n){
+        return (flags[n >>> CHUNK_BITS][n & CHUNK_MASK] & OUT) != 0;
+    }
+
+    protected void setOut(int n){
+        flags[n >>> CHUNK_BITS][n & CHUNK_MASK] |= OUT;
+    }
+
+    protected int numberOfNodesCreated(){
+        return countCreatedNodes;
+    }
+
+    /**
+     * The counters of the search using this store (see SearchCounters).
+     */
+    protected SearchCounters counters(){
+        return counters;
+    }
+
+    /**
+     * Iterate backwards by parents to build the path.
+     *
+     * @param n The last node of the path.
+     * @return A String representing the path to the node, or an empty string if there is no path.
+     */
+    protected String getPath(int n){
+        int length = 0;
+        for (int p = n; parent(p) != NONE; p = parent(p)) length += steps(p);
+        String[] steps = new String[length];
+        for (int p = n; parent(p) != NONE; p = parent(p)) {
+            String name = dirName(getDir(p));
+            for (int i = steps(p); i > 0; i--) steps[--length] = name;
+        }
+        return String.join("-", steps);
+    }
+
+    /**
+     * Number of moves from a node's parent to it.
+     * More than one only after a jump (see Map.jump), which moves in a single direction.
+     */
+    private int steps(int n){
+        if (getDir(n) == ENTER) return 1;
+        int parent = parent(n);
+        return Math.max(Math.abs(x(n) - x(parent)), Math.abs(y(n) - y(parent)));
+    }
+
+    protected static int dx(byte dir){
+        return dir / 3 - 1;
+    }
+
+    protected static int dy(byte dir){
+        return dir % 3 - 1;
+    }
+
+    /**
+     * Provides direction name for path printing.
+     *
+     * @param dir Query direction code.
+     * @return The direction's name.
+     */
+    protected static String dirName(byte dir){
+        if (dir == ENTER) return "Ent";
+        StringBuilder sb = new StringBuilder();
+        int dx = dx(dir), dy = dy(dir);
+        if (dx == 1) sb.append("R");
+        if (dx == -1) sb.append("L");
+        if (dy == 1) sb.append("U");
+        if (dy == -1) sb.append("D");
+        return sb.toString();
+    }
+
+    /**
+     * Code of a direction from the expansion orders in Ex1.
+     *
+     * @param dir A direction, {dx, dy} or {} for "Ent".
+     * @return The direction's code.
+     */
+    protected static byte dirCode(int[] dir){
+        if (dir.length == 0) return ENTER;
+        return (byte) ((dir[0] + 1) * 3 + dir[1] + 1);
+    }
+
+    /**
+     * Node as a String, for printing the open list.
+     *
+     * @param n     A node.
+     * @param withF Whether to include the f-value.
+     * @return [x,y | char | cost | (f |) supplied | parent x,y, parent supplied].
+     */
+    protected String toString(int n, boolean withF){
+        StringBuilder s = new StringBuilder("[" + x(n) + "," + y(n));
+        s.append(" | ").append(map.charAt(x(n), y(n)));
+        s.append(" | ").append(getCost(n));
+        if (withF) s.append(" | ").append(map.f(this, n));
+        if (isSupplied(n)) s.append(" | sup | ");
+        else s.append(" | not | ");
+        int parent = parent(n);
+        if (parent != NONE){
+            s.append(x(parent)).append(",").append(y(parent)).append(", ");
+            if (isSupplied(parent)) s.append("sup");
+            else s.append("not");
+        }
+        else s.append("null");
+        s.append("]");
+        return s.toString();
+    }
+}
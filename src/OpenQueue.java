@@ -0,0 +1,59 @@
+import java.util.function.IntConsumer;
+
+/**
+ * A priority queue of nodes for the A* open list.
+ * Ordered by f-value, then by serial number (old-first or new-first).
+ * The f-value of each node is given on insertion and cached by the queue.
+ */
+public interface OpenQueue {
+
+    int size();
+
+    boolean isEmpty();
+
+    /**
+     * The f-value that was cached for a node when it was inserted.
+     *
+     * @param n A node in the queue.
+     * @return The cached f-value.
+     */
+    int f(int n);
+
+    /**
+     * The f-value of the first node (the lowest f-value in the queue).
+     *
+     * @return The f-value, or Integer.MAX_VALUE if the queue is empty.
+     */
+    int peekF();
+
+    /**
+     * Insert a node.
+     *
+     * @param n Node to add.
+     * @param f f-value of the node.
+     */
+    void add(int n, int f);
+
+    /**
+     * Remove and return the first node.
+     *
+     * @return The first node, or NodeStore.NONE if the queue is empty.
+     */
+    int poll();
+
+    /**
+     * Decrease-key: put a cheaper node in place of an existing one (same state).
+     *
+     * @param old A node in the queue.
+     * @param n   The node replacing it.
+     * @param f   f-value of the new node, must be lower than the old one's.
+     */
+    void replace(int old, int n, int f);
+
+    /**
+     * Apply an action to every node, in the order they would be polled (used for printing).
+     *
+     * @param action Action to apply.
+     */
+    void forEachInOrder(IntConsumer action);
+}
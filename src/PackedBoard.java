@@ -0,0 +1,89 @@
+import java.util.Arrays;
+
+/**
+ * The board, packed 4 bits per cell (16 cells per long), flattened by row (index y * cols + x).
+ * A cell is stored as its kind, which is its index in the character counts (see Problem):
+ * 0-9 for the tunnel digits, then '-', '*', '~', '^' and '#'.
+ * That leaves one kind, OTHER, for G (whose location is known anyway) and any unknown character.
+ * S is stored as '-', which costs the same, so the board doesn't depend on where the start is.
+ */
+public class PackedBoard {
+
+    protected static final int FLOOR = 10, OTHER = 15;
+    private static final String SYMBOLS = "0123456789-*~^#";
+    private final long[] cells;
+    private final int rows, cols;
+
+    /**
+     * Constructor. All cells start as OTHER.
+     *
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @throws IllegalArgumentException If the board is too large.
+     */
+    protected PackedBoard(int rows, int cols){
+        long words = ((long) rows * cols + 15) >>> 4;
+        if (words > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Board too large.");
+        this.rows = rows; this.cols = cols;
+        this.cells = new long[(int) words];
+        Arrays.fill(cells, -1L);
+    }
+
+    /**
+     * Kind of a character.
+     *
+     * @param c A board character.
+     * @return Its index in the character counts, or OTHER.
+     */
+    protected static int kind(char c){
+        if (c >= '0' && c <= '9') return c - '0';
+        return switch (c) {
+            case '-' -> FLOOR;
+            case '*' -> 11;
+            case '~' -> 12;
+            case '^' -> 13;
+            case '#' -> 14;
+            default -> OTHER;
+        };
+    }
+
+    /**
+     * Character of a kind.
+     *
+     * @param kind A kind other than OTHER.
+     * @return The board character.
+     */
+    protected static char symbol(int kind){
+        return SYMBOLS.charAt(kind);
+    }
+
+    protected int get(int x, int y){
+        long i = (long) y * cols + x;
+        return (int) (cells[(int) (i >>> 4)] >>> ((i & 15) << 2)) & 15;
+    }
+
+    protected void set(int x, int y, int kind){
+        long i = (long) y * cols + x;
+        int word = (int) (i >>> 4), shift = (int) (i & 15) << 2;
+        cells[word] = (cells[word] & ~(15L << shift)) | ((long) kind << shift);
+    }
+
+    /**
+     * A 64-bit hash of the board's size and contents, to recognize the same board in later runs.
+     */
+    protected long fingerprint(){
+        long h = (long) rows << 32 | cols;
+        for (long word : cells) {
+            h = Long.rotateLeft((h ^ word) * 0x9E3779B97F4A7C15L, 29);
+        }
+        return h * 0xBF58476D1CE4E5B9L;
+    }
+
+    protected int rows(){
+        return rows;
+    }
+
+    protected int cols(){
+        return cols;
+    }
+}
@@ -0,0 +1,318 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelIDAStar extends IterativeDepthFirstSearchAlgo {
+
+    /**
+     * Number of work items to split each iteration into, per thread (more items balance the load better).
+     */
+    private static final int ITEMS_PER_THREAD = 16;
+    /**
+     * Deepest level to split the tree at (a corridor may never branch enough).
+     */
+    private static final int MAX_SPLIT_DEPTH = 32;
+    /**
+     * Whether to generate successors by jump point search (see Map.jump) instead of single moves.
+     */
+    private final boolean jumpPoints;
+    private final int threads, tableSize;
+    private final TranspositionTable.Policy tablePolicy;
+    /**
+     * The workers of the search, one per pool thread, for their statistics.
+     */
+    private final ConcurrentLinkedQueue<Worker> workers = new ConcurrentLinkedQueue<>();
+    private int iterations = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param clockwise   order in which to create the next-step nodes.
+     * @param withTime    whether to print runtime or not.
+     * @param withOpen    whether to print current open list at every step (not supported, see printOpenList).
+     * @param jumpPoints  whether to use jump point search successors.
+     * @param threads     number of threads.
+     * @param tableSize   number of entries of the transposition tables, shared by the threads.
+     * @param tablePolicy replacement policy of the transposition tables.
+     * @param map         the board to search.
+     * @param nodes       the node store.
+     * @param start       start node.
+     */
+    protected ParallelIDAStar(boolean clockwise, boolean withTime, boolean withOpen, boolean jumpPoints, int threads,
+                              int tableSize, TranspositionTable.Policy tablePolicy, Map map, NodeStore nodes, int start) {
+        this.clockwise = clockwise; this.withTime = withTime; this.withOpen = withOpen;
+        this.map = map; this.nodes = nodes; this.start = start;
+        this.jumpPoints = jumpPoints;
+        this.threads = threads;
+        this.tableSize = Math.max(1, tableSize / threads);
+        this.tablePolicy = tablePolicy;
+        this.maxF = maxF(map);
+    }
+
+    /**
+     * Runs IDA* on several threads, with the same thresholds as IDAStar.
+     * Each iteration expands the top of the tree breadth-first (see split) until it has enough nodes
+     * to keep the threads busy, and the subtree of each of these nodes is a work item:
+     * a bounded DFS like IDAStar's, with a transposition table per thread (cleared between iterations).
+     * The work items run on a ForkJoinPool, so idle threads steal items from busy ones.
+     * The threads share the minimum f-value over the threshold (the next threshold) through an atomic.
+     * Any path found within the threshold is optimal, so the first thread to find one stops all the others.
+     * The cost is always the same, but which optimal path is found (and the number of nodes created)
+     * depends on how the threads ran.
+     *
+     * @return A string representing the path, or "no path" if no path exists.
+     */
+    @Override
+    protected String findPath() {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ThreadLocal<Worker> worker = ThreadLocal.withInitial(() -> {
+            Worker w = new Worker();
+            workers.add(w);
+            return w;
+        });
+        try {
+            int previousT = -1;
+            int t = map.heuristic(nodes.x(start), nodes.y(start), nodes.isSupplied(start));  // Equal to f(start).
+            while (t <= maxF && t != previousT) {
+                previousT = t;
+                int threshold = t;
+                SearchEvents.Iteration event = SearchEvents.beginIteration();
+                AtomicInteger minF = new AtomicInteger(maxF);
+                IntQueue items = new IntQueue(), split = new IntQueue();
+                int goal = split(threshold, items, split, minF);
+                int count = items.size(), iteration = ++iterations;
+                if (goal != NodeStore.NONE) {
+                    SearchEvents.end(event, "IDA*", iteration, threshold, nodesCreated(), true);
+                    return getPath(goal);
+                }
+                AtomicInteger found = new AtomicInteger(NodeStore.NONE);  // The item that found a path.
+                String[] paths = new String[count];
+                int[] costs = new int[count];
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int index = i, item = items.get(i);
+                    tasks.add(ForkJoinTask.adapt(() -> worker.get().search(iteration, index, item, threshold,
+                            found, minF, paths, costs)));
+                }
+                for (Worker w : workers) w.maxStack = 0;
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+                int space = count;  // The items, and the largest stack of each thread.
+                for (Worker w : workers) space += w.maxStack;
+                maxSizeOfOpenList = Math.max(maxSizeOfOpenList, space);
+                while (!split.isEmpty()) nodes.release(split.poll());
+                SearchEvents.end(event, "IDA*", iteration, threshold, nodesCreated(), found.get() != NodeStore.NONE);
+                if (found.get() != NodeStore.NONE) {
+                    pathCost = costs[found.get()];
+                    return paths[found.get()];
+                }
+                t = minF.get();
+            }
+            return "no path";
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Split an iteration into work items: expand the tree breadth-first from start, within the threshold,
+     * until a level has ITEMS_PER_THREAD nodes per thread (or at MAX_SPLIT_DEPTH).
+     * A state reached at no lower cost than before is pruned, as by the transposition table.
+     *
+     * @param t     The threshold.
+     * @param items Receives the work items, the nodes of the last level.
+     * @param split Receives every node created, to release after the iteration.
+     * @param minF  The lowest f-value over the threshold.
+     * @return A goal node within the threshold, or NodeStore.NONE.
+     */
+    private int split(int t, IntQueue items, IntQueue split, AtomicInteger minF) {
+        nodes.reset(start);     // Reset start - not supplied, no direction, no parent, not out.
+        NodeMap seen = new NodeMap();  // The cheapest node of each state.
+        seen.put(nodes.ID(start), start);
+        IntQueue level = new IntQueue();
+        level.add(start);
+        int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
+        for (int depth = 0; depth < MAX_SPLIT_DEPTH && !level.isEmpty()
+                && level.size() < threads * ITEMS_PER_THREAD; depth++) {
+            IntQueue nextLevel = new IntQueue();
+            while (!level.isEmpty()) {
+                int current = level.poll();
+                if (seen.get(nodes.ID(current)) != current) continue;  // Reached at a lower cost since.
+                nodes.counters().expanded();
+                for (int[] dir : directions) {
+                    int next = jumpPoints ? map.jump(nodes, current, dir) : map.move(nodes, current, dir);
+                    if (next == NodeStore.NONE) continue;
+                    int nextF = map.f(nodes, next), old = seen.get(nodes.ID(next));
+                    if (nextF > t) {
+                        minF.accumulateAndGet(nextF, Math::min);
+                        nodes.release(next);
+                    }
+                    else if (old != NodeStore.NONE && nodes.getCost(old) <= nodes.getCost(next)) {
+                        nodes.counters().duplicate();
+                        nodes.release(next);
+                    }
+                    else {
+                        if (map.goal(nodes, next)) return next;
+                        seen.put(nodes.ID(next), next);
+                        nextLevel.add(next);
+                        split.add(next);
+                        maxSizeOfOpenList = Math.max(maxSizeOfOpenList, level.size() + nextLevel.size());
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        while (!level.isEmpty()) {
+            int n = level.poll();
+            if (seen.get(nodes.ID(n)) == n) items.add(n);
+        }
+        return NodeStore.NONE;
+    }
+
+    /**
+     * The nodes of the split, and those of every thread.
+     */
+    @Override
+    protected int nodesCreated() {
+        int count = super.nodesCreated();
+        for (Worker w : workers) count += w.nodes.numberOfNodesCreated() - w.copies;
+        return count;
+    }
+
+    /**
+     * The counters of the split, and those of every thread.
+     */
+    @Override
+    protected void addCounters(SearchCounters total) {
+        super.addCounters(total);
+        for (Worker w : workers) total.add(w.nodes.counters());
+    }
+
+    @Override
+    protected void addToOpenList(int n) {
+        // Each thread has its own stack (see Worker).
+    }
+
+    @Override
+    protected void printOpenList(PrintStream out) {
+        // The stacks of the threads change concurrently, so there is no open list to print.
+    }
+
+    /**
+     * The search state of one thread: its node store, stack and transposition table.
+     */
+    private final class Worker {
+
+        private final NodeStore nodes = new NodeStore(map);
+        private final IntStack stack = new IntStack();
+        private final TranspositionTable table = new TranspositionTable(tableSize, tablePolicy);
+        /**
+         * Nodes copied from the split (not created by the search), the largest stack in this iteration,
+         * and the iteration the table holds.
+         */
+        private int copies = 0, maxStack = 0, iteration = 0;
+
+        /**
+         * Search one work item: IDAStar's bounded DFS, from a copy of the item's node (and its path from start).
+         * Stops early when any item has found a path.
+         *
+         * @param iteration The iteration.
+         * @param index     The item's index.
+         * @param item      The item's node, in the store of the split.
+         * @param t         The threshold.
+         * @param found     The index of the item that found a path, or NodeStore.NONE.
+         * @param minF      The lowest f-value over the threshold.
+         * @param paths     Receives the path of the item that finds one.
+         * @param costs     Receives the cost of the item that finds a path.
+         */
+        private void search(int iteration, int index, int item, int t, AtomicInteger found, AtomicInteger minF,
+                            String[] paths, int[] costs) {
+            if (found.get() != NodeStore.NONE) return;
+            if (this.iteration != iteration) {  // States reached in earlier items of the iteration stay in the table.
+                this.iteration = iteration;
+                table.clear();
+            }
+            NodeStore split = ParallelIDAStar.this.nodes;
+            if (table.get(split.ID(item)) <= split.getCost(item)) return;  // Searched from an earlier item.
+            int root = copy(item);
+            int localMinF = maxF;
+            stack.push(root);
+            table.put(nodes.ID(root), nodes.getCost(root));
+            int[][] directions = clockwise ? Ex1.clockwiseOrder : Ex1.counterClockwiseOrder;
+            search:
+            while (!stack.empty() && found.get() == NodeStore.NONE) {
+                int current = stack.pop();
+                if (nodes.isOut(current)) {
+                    if (current != root) nodes.release(current);  // Its whole subtree is done.
+                }
+                else if (table.get(nodes.ID(current)) < nodes.getCost(current)) {
+                    nodes.release(current);  // Reached at a lower cost since it was pushed, never expanded.
+                }
+                else {
+                    nodes.setOut(current);
+                    stack.push(current);
+                    nodes.counters().expanded();
+                    for (int[] dir : directions) {
+                        int next = jumpPoints ? map.jump(nodes, current, dir) : map.move(nodes, current, dir);
+                        if (next == NodeStore.NONE) continue;
+                        int nextF = map.f(nodes, next);
+                        if (nextF > t) {
+                            localMinF = Math.min(localMinF, nextF);
+                            nodes.release(next);
+                        }
+                        else if (table.get(nodes.ID(next)) <= nodes.getCost(next)) {
+                            nodes.counters().duplicate();
+                            nodes.release(next);  // Already reached at no higher cost in this item.
+                        }
+                        else if (map.goal(nodes, next)) {
+                            paths[index] = nodes.getPath(next);
+                            costs[index] = nodes.getCost(next);
+                            found.compareAndSet(NodeStore.NONE, index);
+                            nodes.release(next);
+                            break search;
+                        }
+                        else {
+                            stack.push(next);
+                            table.put(nodes.ID(next), nodes.getCost(next));
+                            maxStack = Math.max(maxStack, stack.size());
+                        }
+                    }
+                }
+            }
+            while (!stack.empty()) {
+                int n = stack.pop();
+                if (n != root) nodes.release(n);
+            }
+            for (int n = root; n != NodeStore.NONE; ) {  // The copied path.
+                int parent = nodes.parent(n);
+                nodes.release(n);
+                n = parent;
+            }
+            minF.accumulateAndGet(localMinF, Math::min);
+        }
+
+        /**
+         * Copy a node of the split and its path from start into this thread's store.
+         *
+         * @param n The node, in the store of the split.
+         * @return The copy.
+         */
+        private int copy(int n) {
+            NodeStore split = ParallelIDAStar.this.nodes;
+            IntStack path = new IntStack();
+            for (int p = n; p != NodeStore.NONE; p = split.parent(p)) path.push(p);
+            int copy = nodes.newStart(split.x(start), split.y(start));
+            path.pop();
+            while (!path.empty()) {
+                int p = path.pop();
+                copy = nodes.newNode(split.x(p), split.y(p), split.getCost(p), split.getDir(p), split.isSupplied(p), copy);
+                copies++;
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Problem {
+
+    protected String algoName;
+    protected boolean oldFirst = false, buckets = false, jumpPoints = false, exactRefinement = false, clockwise, withTime, withOpen;
+    protected int landmarks = 0, timeBudget = 0, threads = 1, tableSize = TranspositionTable.DEFAULT_SIZE, rows, cols, startX = -1, startY = -1, goalX = -1, goalY = -1;
+    protected TranspositionTable.Policy tablePolicy = TranspositionTable.Policy.CHEAPER;
+    protected PackedBoard board;
+    protected int[][] tunnels;
+    protected int[] charCounts;
+    /**
+     * Edits of the board, made after the search (see LPAStar.update), each {x, y, new character}.
+     */
+    protected final List<int[]> edits = new ArrayList<>();
+    /**
+     * Parsing state: the current line (of the whole input), the header line being read,
+     * and the board position being filled.
+     */
+    private int line = 0, row, col = 0;
+    private final StringBuilder headerLine = new StringBuilder(), editLine = new StringBuilder();
+    private static final int HEADER_LINES = 5;
+    /**
+     * Largest part of a file mapped at once (a mapping can't be larger than 2GB).
+     */
+    private static final long MAP_WINDOW = 1 << 30;
+
+    private Problem(){}
+
+    /**
+     * Load an input file: the header lines (algorithm and options), then the board, then optional edits.
+     * The file is memory-mapped and parsed in one pass straight into the packed board,
+     * counting the cells of each kind and finding S, G and the tunnel entrances on the way,
+     * so a huge board is never held as text or as lines.
+     *
+     * @param file The input file.
+     * @return The parsed problem.
+     * @throws IOException              If the file can't be read.
+     * @throws IllegalArgumentException If the input is malformed.
+     */
+    protected static Problem load(Path file) throws IOException {
+        Problem p = new Problem();
+        SearchEvents.MapParse event = SearchEvents.beginMapParse();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                p.parse(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position)));
+            }
+        }
+        p.finish();
+        SearchEvents.end(event, p.algoName, p.rows, p.cols);
+        return p;
+    }
+
+    /**
+     * Parse an input from a reader (same format as {@link #load(Path)}).
+     *
+     * @param reader Reader of the input.
+     * @return The parsed problem.
+     * @throws IOException              If the input can't be read.
+     * @throws IllegalArgumentException If the input is malformed.
+     */
+    protected static Problem read(BufferedReader reader) throws IOException {
+        Problem p = new Problem();
+        SearchEvents.MapParse event = SearchEvents.beginMapParse();
+        char[] buffer = new char[1 << 16];
+        for (int n = reader.read(buffer); n != -1; n = reader.read(buffer)) {
+            p.parse(StandardCharsets.ISO_8859_1.encode(CharBuffer.wrap(buffer, 0, n)));
+        }
+        p.finish();
+        SearchEvents.end(event, p.algoName, p.rows, p.cols);
+        return p;
+    }
+
+    /**
+     * Parse the next part of the input. Lines may be split between parts.
+     *
+     * @param in The next bytes of the input.
+     * @throws IllegalArgumentException If the input is malformed.
+     */
+    private void parse(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte c = in.get();
+            if (c == '\r') continue;
+            if (line < HEADER_LINES) {
+                if (c == '\n') {
+                    header(headerLine.toString());
+                    headerLine.setLength(0);
+                    line++;
+                }
+                else headerLine.append((char) (c & 0xFF));
+            }
+            else if (row < 0) {  // After the last row: edit lines, and anything else is ignored.
+                if (c == '\n') {
+                    edit(editLine.toString());
+                    editLine.setLength(0);
+                }
+                else editLine.append((char) (c & 0xFF));
+            }
+            else if (c == '\n') {
+                endRow();
+            }
+            else {
+                if (col < cols) cell(col, row, c);  // If a line is longer than expected, tail chars are ignored.
+                col++;
+            }
+        }
+    }
+
+    /**
+     * Handle a header line.
+     *
+     * @param text The line.
+     * @throws IllegalArgumentException If the line is malformed.
+     */
+    private void header(String text) {
+        switch (line) {
+            case 0 -> algoName = text;  // Required algorithm
+            case 1 -> {
+                /*
+                 * Order line: "clockwise"/"counter-clockwise", optional "old-first"/"new-first",
+                 * optional "bucket-queue" (A* open list implementation),
+                 * optional "jump-points" (jump point search successors for A* and IDA*),
+                 * optional "landmarks=K" (K landmark lower bounds added to the heuristic, see Landmarks),
+                 * optional "exact-refinement" (HPA* paths improved by a bounded A*),
+                 * optional "table-size=N" and "table-policy=always"/"table-policy=cheaper"
+                 * (the IDA* transposition table, see TranspositionTable),
+                 * optional "threads=N" (A* and IDA* on N threads, see HDAStar and ParallelIDAStar),
+                 * optional "time-budget=MS" (ARA* and DFBnB stop after MS milliseconds with their best path so far,
+                 * and print each better path they find on stderr).
+                 */
+                String[] lineArr = text.split(" ");
+                clockwise = lineArr[0].equals("clockwise");
+                for (int i = 1; i < lineArr.length; i++) {
+                    if (lineArr[i].equals("old-first")) oldFirst = true;
+                    if (lineArr[i].equals("bucket-queue")) buckets = true;
+                    if (lineArr[i].equals("jump-points")) jumpPoints = true;
+                    if (lineArr[i].startsWith("landmarks=")) landmarks = count(lineArr[i], "landmarks=");
+                    if (lineArr[i].equals("exact-refinement")) exactRefinement = true;
+                    if (lineArr[i].startsWith("table-size=")) tableSize = count(lineArr[i], "table-size=");
+                    if (lineArr[i].equals("table-policy=always")) tablePolicy = TranspositionTable.Policy.ALWAYS;
+                    if (lineArr[i].equals("table-policy=cheaper")) tablePolicy = TranspositionTable.Policy.CHEAPER;
+                    if (lineArr[i].startsWith("time-budget=")) timeBudget = count(lineArr[i], "time-budget=");
+                    if (lineArr[i].startsWith("threads=")) threads = count(lineArr[i], "threads=");
+                }
+            }
+            case 2 -> withTime = text.equals("with time");
+            case 3 -> withOpen = text.equals("with open");
+            case 4 -> startBoard(text);
+        }
+    }
+
+    /**
+     * Parse a numeric option ("landmarks=K", "table-size=N", "time-budget=MS", "threads=N").
+     *
+     * @param option The option.
+     * @param name   The option's name, up to the number.
+     * @return The number.
+     * @throws IllegalArgumentException If the number isn't a non-negative number.
+     */
+    private static int count(String option, String name) {
+        try {
+            int count = Integer.parseInt(option.substring(name.length()));
+            if (count >= 0) return count;
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("Malformed option: " + option);
+    }
+
+    /**
+     * Parse the "rows x cols" line, and prepare the board.
+     *
+     * @param text The size line.
+     * @throws IllegalArgumentException If the size is malformed or too large.
+     */
+    private void startBoard(String text) {
+        String[] lineArr = text.split("x");
+        if (lineArr.length != 2) throw new IllegalArgumentException("Malformed board size: " + text);
+        try {
+            rows = Integer.parseInt(lineArr[0].trim());
+            cols = Integer.parseInt(lineArr[1].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed board size: " + text);
+        }
+        if (rows <= 0 || cols <= 0) throw new IllegalArgumentException("Malformed board size: " + text);
+        // The state keys hold y in 27 bits, and the map's tables are indexed by int within blocks of rows:
+        if (rows - 1 > StateKey.MAX_Y || cols > Map.MAX_COLS) throw new IllegalArgumentException("Board too large.");
+        charCounts = new int[15];
+        board = new PackedBoard(rows, cols);
+        /*
+         * Locations of tunnel entrances, by pairs.
+         * the sub-array at tunnels[i] is:
+         * {{x1, y1}, {x2, y2}},
+         * the coordinates of the first and second entrances.
+         */
+        tunnels = new int[10][4];
+        for (int[] t : tunnels){
+            Arrays.fill(t, -1);
+        }
+        /*
+         * We insert into the board from the last row,
+         * so that the intuitive 'y+1 means going up' logic can be used.
+         * The last line read (representing the bottom of the map)
+         * will be at the first row of the board (row 0).
+         */
+        row = rows - 1;
+    }
+
+    /**
+     * Store a cell, and update the counts, the tunnel entrances, and the x,y values of start and goal.
+     *
+     * @throws IllegalArgumentException If there is more than one start or goal.
+     */
+    private void cell(int x, int y, byte c) {
+        int kind = PackedBoard.kind((char) (c & 0xFF));
+        if (kind != PackedBoard.OTHER) {
+            board.set(x, y, kind);
+            charCounts[kind]++;
+            if (kind <= 9){
+                int[] t = tunnels[kind];
+                if (t[0] == -1) { t[0] = x; t[1] = y; }
+                else { t[2] = x; t[3] = y; }
+            }
+        }
+        else if (c == 'S') {
+            if (startX != -1 || startY != -1){
+                throw new IllegalArgumentException("Multiple starts in map.");
+            }
+            startX = x; startY = y;
+            board.set(x, y, PackedBoard.FLOOR);  // S costs the same as '-' (see PackedBoard).
+        }
+        else if (c == 'G') {
+            if (goalX != -1 || goalY != -1){
+                throw new IllegalArgumentException("Multiple goals in map.");
+            }
+            goalX = x; goalY = y;
+        }
+    }
+
+    /**
+     * End of a board line.
+     *
+     * @throws IllegalArgumentException If the line is too short.
+     */
+    private void endRow() {
+        if (col < cols){
+            throw new IllegalArgumentException("Line too short.");
+        }
+        row--;
+        col = 0;
+    }
+
+    /**
+     * Handle a line after the board. An edit line is "set ROW,COL C": change the cell at ROW (from 1, the top line
+     * of the board) and COL (from 1, the left) to C, one of '-', '*', '~', '^' and '#' (see Map.setCell).
+     * LPA* searches the board as given, then makes the edits and repairs its path (see LPAStar);
+     * the other algorithms search the edited board.
+     *
+     * @param text The line.
+     * @throws IllegalArgumentException If the line is a malformed edit.
+     */
+    private void edit(String text) {
+        if (!text.startsWith("set ")) return;
+        String[] lineArr = text.substring(4).trim().split("[, ]+");
+        try {
+            int editRow = Integer.parseInt(lineArr[0]), editCol = Integer.parseInt(lineArr[1]);
+            if (lineArr.length == 3 && lineArr[2].length() == 1 && editRow >= 1 && editRow <= rows
+                    && editCol >= 1 && editCol <= cols) {
+                edits.add(new int[]{editCol - 1, rows - editRow, lineArr[2].charAt(0)});
+                return;
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("Malformed edit: " + text);
+    }
+
+    /**
+     * End of the input: check that it was complete.
+     *
+     * @throws IllegalArgumentException If the input is incomplete.
+     */
+    private void finish() {
+        if (line < HEADER_LINES) throw new IllegalArgumentException("Input too short.");
+        if (row >= 0 && col > 0) endRow();  // Last line without a newline.
+        if (row >= 0) throw new IllegalArgumentException("Missing lines.");
+        edit(editLine.toString());  // Last line without a newline.
+        editLine.setLength(0);
+        if (startX == -1 || startY == -1) {
+            throw new IllegalArgumentException("Start location not found.");
+        }
+        if (goalX == -1 || goalY == -1) {
+            throw new IllegalArgumentException("Goal location not found.");
+        }
+    }
+
+    /**
+     * Key of this query in the result cache: everything the search's output depends on
+     * (the board, start, goal, algorithm, options and edits), but not the printing options.
+     * A search stopped by a time budget has no key: its output depends on how fast it ran.
+     * Neither has a search on several threads (see HDAStar and ParallelIDAStar): its output depends on their timing.
+     *
+     * @return The key, or null if the result shouldn't be cached.
+     */
+    protected String cacheKey(){
+        if ((algoName.equals("ARA*") || algoName.equals("DFBnB")) && timeBudget > 0) return null;
+        if (threads > 1 && (algoName.equals("A*") || algoName.equals("IDA*"))) return null;
+        return String.format("%016x %dx%d %d,%d %d,%d %s%s%s%s%s%s%s%s%s", board.fingerprint(), rows, cols,
+                startX, startY, goalX, goalY, algoName, clockwise ? " clockwise" : " counter-clockwise",
+                oldFirst ? " old-first" : "", buckets ? " bucket-queue" : "", jumpPoints ? " jump-points" : "",
+                landmarks > 0 ? " landmarks=" + landmarks : "", exactRefinement ? " exact-refinement" : "",
+                algoName.equals("IDA*") ? " table-size=" + tableSize + " table-policy=" + tablePolicy : "",
+                editsKey());
+    }
+
+    private String editsKey(){
+        StringBuilder key = new StringBuilder();
+        for (int[] e : edits) key.append(" set ").append(e[0]).append(',').append(e[1]).append(' ').append((char) e[2]);
+        return key.toString();
+    }
+
+    /**
+     * Build the map (runs the tunnel precomputation, and the landmark precomputation if requested).
+     * The edits are made here, except for LPA*, which makes them itself after its first search.
+     *
+     * @return The map of this problem.
+     * @throws IllegalArgumentException If landmarks are requested and the board is too large for them,
+     *                                  or an edit can't be made.
+     */
+    protected Map map(){
+        Map map = new Map(board, tunnels, startX, startY, goalX, goalY, charCounts);
+        if (!algoName.equals("LPA*")) {
+            for (int[] e : edits) map.setCell(e[0], e[1], (char) e[2]);
+        }
+        if (landmarks > 0) map.setLandmarks(new Landmarks(map, landmarks));
+        return map;
+    }
+
+    /**
+     * Create the requested search algorithm, with a fresh node store.
+     *
+     * @param map The map of this problem (see {@link #map()}).
+     * @return The algorithm, or null if the algorithm name is unknown.
+     */
+    protected SearchAlgo algo(Map map){
+        NodeStore nodes = new NodeStore(map);
+        int start = nodes.newStart(startX, startY);
+        return switch (algoName) {
+            case "BFS" -> new BFS(clockwise, withTime, withOpen, map, nodes, start);
+            case "A*" -> threads > 1
+                    ? new HDAStar(clockwise, withTime, withOpen, oldFirst, threads, map, nodes, start)
+                    : new AStar(clockwise, withTime, withOpen, oldFirst, buckets, jumpPoints, map, nodes, start);
+            case "BiA*" -> new BidirectionalAStar(clockwise, withTime, withOpen, oldFirst, map, nodes, start);
+            case "DFID" -> new DFID(clockwise, withTime, withOpen, map, nodes, start);
+            case "IDA*" -> threads > 1
+                    ? new ParallelIDAStar(clockwise, withTime, withOpen, jumpPoints, threads, tableSize, tablePolicy,
+                            map, nodes, start)
+                    : new IDAStar(clockwise, withTime, withOpen, jumpPoints,
+                            new TranspositionTable(tableSize, tablePolicy), map, nodes, start);
+            case "DIST" -> new DistanceFieldSearch(clockwise, withTime, withOpen, map, nodes, start);
+            case "HPA*" -> new HPAStar(clockwise, withTime, withOpen, oldFirst, exactRefinement, map, nodes, start);
+            case "DFBnB" -> {
+                DFBnB dfbnb = new DFBnB(clockwise, withTime, withOpen, oldFirst, timeBudget * 1_000_000L,
+                        map, nodes, start);
+                // With a time budget (an anytime run), every intermediate path, on stderr to keep the output format:
+                if (timeBudget > 0) dfbnb.setListener((path, cost, bound, elapsed) -> System.err.printf(
+                        "DFBnB: cost %d, at most %.2f times optimal, after %.3f seconds%n",
+                        cost, bound, elapsed / 1_000_000_000.0));
+                yield dfbnb;
+            }
+            case "LPA*" -> new LPAStar(clockwise, withTime, withOpen, edits, map, nodes, start);
+            case "ARA*" -> {
+                ARAStar araStar = new ARAStar(clockwise, withTime, withOpen, oldFirst, timeBudget * 1_000_000L,
+                        map, nodes, start);
+                // With a time budget (an anytime run), every intermediate path, on stderr to keep the output format:
+                if (timeBudget > 0) araStar.setListener((path, cost, bound, elapsed) -> System.err.printf(
+                        "ARA*: cost %d, at most %.2f times optimal, after %.3f seconds%n",
+                        cost, bound, elapsed / 1_000_000_000.0));
+                yield araStar;
+            }
+            default -> null;
+        };
+    }
+}
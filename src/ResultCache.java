@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+
+/**
+ * Cache of search results (path, number of nodes, max space, cost), for repeated identical queries.
+ * The key is the query: board fingerprint, start and goal, algorithm and options (see Problem.cacheKey).
+ * Only deterministic searches are cached (a search stopped by a time budget, or run on several threads, has no key),
+ * so a cached result is exactly what running the search again would give.
+ * In memory: a bounded LRU map, shared by all runs in the JVM.
+ * On disk (optional, if the system property "resultCache.dir" is set): one file per key in that directory,
+ * so the results survive the JVM. Disk errors only make the cache miss.
+ */
+public final class ResultCache {
+
+    private static final int MEMORY_SIZE = 1024;
+    private static final LinkedHashMap<String, String[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private static final String DIR = System.getProperty("resultCache.dir");
+
+    private ResultCache(){}
+
+    /**
+     * Look up a query, in memory and then on disk.
+     *
+     * @param key The query key.
+     * @return A copy of the cached output fields, or null if the query isn't cached.
+     */
+    protected static String[] get(String key){
+        synchronized (memory) {
+            String[] results = memory.get(key);
+            if (results != null) return results.clone();
+        }
+        String[] results = readFile(key);
+        if (results != null) putInMemory(key, results);
+        return results;
+    }
+
+    /**
+     * Cache the result of a query, in memory and on disk.
+     *
+     * @param key     The query key.
+     * @param results The output fields: path, number of nodes, max space, cost.
+     */
+    protected static void put(String key, String[] results){
+        putInMemory(key, results.clone());
+        writeFile(key, results);
+    }
+
+    private static void putInMemory(String key, String[] results){
+        synchronized (memory) {
+            memory.put(key, results);
+            if (memory.size() > MEMORY_SIZE) memory.remove(memory.keySet().iterator().next());  // Least recently used.
+        }
+    }
+
+    /**
+     * File of a key: named by a hash of the key, and starting with the key itself
+     * (so a hash collision is a miss, not a wrong result).
+     */
+    private static Path file(String key){
+        return Path.of(DIR, String.format("%016x.result", hash(key)));
+    }
+
+    private static String[] readFile(String key){
+        if (DIR == null) return null;
+        try {
+            String[] lines = Files.readString(file(key), StandardCharsets.UTF_8).split("\n", -1);
+            if (lines.length != 5 || !lines[0].equals(key)) return null;
+            return new String[]{lines[1], lines[2], lines[3], lines[4]};
+        } catch (IOException e) {
+            return null;  // Missing or unreadable: a miss.
+        }
+    }
+
+    private static void writeFile(String key, String[] results){
+        if (DIR == null) return;
+        try {
+            Path file = file(key);
+            Files.createDirectories(file.getParent());
+            // Write a temporary file and rename it, so readers never see a partial file:
+            Path temp = Files.createTempFile(file.getParent(), "result", ".tmp");
+            Files.writeString(temp, key + "\n" + String.join("\n", results), StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // The disk tier is best-effort: the result is still in memory.
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a string.
+     */
+    private static long hash(String s){
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+}
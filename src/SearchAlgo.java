@@ -1,25 +1,38 @@
-import java.util.Comparator;
-import java.util.HashMap;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 
 public abstract class SearchAlgo {
 
     /**
-     * The open list (frontier)
+     * The open list (frontier), keyed by packed state key.
      */
-    protected HashMap<String, Node> openList = new HashMap<>();
+    protected NodeMap openList = new NodeMap();
     protected boolean clockwise, withTime, withOpen, oldFirst;
     protected Map map;
-    protected Node start;
+    protected NodeStore nodes;
+    protected int start;
     protected int maxSizeOfOpenList = 0, pathCost = 0;
-    protected Comparator<Node> nodeCompare = (n1, n2) -> {
-        int fCompare = Integer.compare(map.f(n1), map.f(n2));
+    /**
+     * The trace of the search (see TraceRecorder), or null if it isn't traced.
+     */
+    protected TraceRecorder trace;
+
+    /**
+     * Order of nodes for the informed searches:
+     * by f-value, then by creation time (old-first or new-first).
+     *
+     * @return Negative if n1 comes first, positive if n2 comes first.
+     */
+    protected int compareNodes(int n1, int n2){
+        int fCompare = Integer.compare(map.f(nodes, n1), map.f(nodes, n2));
         if (fCompare != 0) return fCompare;
         if (oldFirst) {
-            return Integer.compare(n1.getSerialNumber(), n2.getSerialNumber());
+            return Integer.compare(nodes.getSerialNumber(n1), nodes.getSerialNumber(n2));
         } else {
-            return Integer.compare(n2.getSerialNumber(), n1.getSerialNumber());
+            return Integer.compare(nodes.getSerialNumber(n2), nodes.getSerialNumber(n1));
         }
-    };
+    }
 
     /**
      * The actual specific algorithm implementation.
@@ -33,12 +46,58 @@ public abstract class SearchAlgo {
      *
      * @param n Node to add.
      */
-    protected abstract void addToOpenList(Node n);
+    protected abstract void addToOpenList(int n);
+
+    /**
+     * Print the open list (the "with-open" option, and the snapshots of a trace).
+     *
+     * @param out Where to print it.
+     */
+    protected abstract void printOpenList(PrintStream out);
 
     /**
      * Print the open list to console (the "with-open" option).
      */
-    protected abstract void printOpenList();
+    protected void printOpenList(){
+        printOpenList(System.out);
+    }
+
+    /**
+     * Trace the search. The snapshots of the open list in the trace replace printing it at every step ("with open").
+     *
+     * @param trace The trace.
+     */
+    protected void setTrace(TraceRecorder trace){
+        this.trace = trace;
+        this.withOpen = false;
+    }
+
+    /**
+     * Record the expansion of a node in the trace, if the search is traced.
+     *
+     * @param n        The node.
+     * @param openSize The size of the open list.
+     */
+    protected void traceExpansion(int n, int openSize){
+        if (trace == null) return;
+        int g = nodes.getCost(n), h = map.heuristic(nodes.x(n), nodes.y(n), nodes.isSupplied(n));
+        traceExpansion(nodes.directedID(n), g, g + h, openSize);
+    }
+
+    /**
+     * Record an expansion in the trace, if the search is traced, and a snapshot of the open list when one is due.
+     *
+     * @param key      The packed key of the expanded state.
+     * @param g        Its cost.
+     * @param f        Its f-value.
+     * @param openSize The size of the open list.
+     */
+    protected void traceExpansion(long key, int g, int f, int openSize){
+        if (trace == null || !trace.expansion(key, g, f, openSize)) return;
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        printOpenList(new PrintStream(text, true, StandardCharsets.UTF_8));
+        trace.snapshot(text.toString(StandardCharsets.UTF_8));
+    }
 
     /**
      * Get the output from running the search algo.
@@ -47,21 +106,56 @@ public abstract class SearchAlgo {
      * @return Output as per assignment instructions.
      */
     protected String[] output(){
+        SearchEvents.Solution event = SearchEvents.beginSolution();
         String path = findPath();
         String cost = path.equals("no path") ? "inf" : String.valueOf(pathCost);
+        if (event != null) {
+            SearchEvents.end(event, getClass().getSimpleName(), path.equals("no path") ? -1 : pathCost,
+                    nodesCreated(), maxSizeOfOpenList);
+        }
         return new String[]{path,
-                String.valueOf(Node.numberOfNodesCreated()),
+                String.valueOf(nodesCreated()),
                 String.valueOf(maxSizeOfOpenList),
                 cost};
     }
 
+    /**
+     * Number of nodes the search created.
+     *
+     * @return The count of the node store (searches with more than one store add theirs).
+     */
+    protected int nodesCreated(){
+        return nodes.numberOfNodesCreated();
+    }
+
+    /**
+     * The counters of the search (see SearchCounters), with the nodes created as the generated nodes.
+     *
+     * @return A snapshot of the counters.
+     */
+    protected SearchCounters counters(){
+        SearchCounters total = new SearchCounters();
+        addCounters(total);
+        total.addGenerated(nodesCreated());
+        return total;
+    }
+
+    /**
+     * Add the counters of the search's node stores.
+     *
+     * @param total The counters to add to.
+     */
+    protected void addCounters(SearchCounters total){
+        total.add(nodes.counters());
+    }
+
     /**
      * Check if location is in the open list.
      *
      * @return True iff location (x,y) is in the open list.
      */
-    protected boolean inOpenList(Node n){
-        return openList.containsKey(n.ID());
+    protected boolean inOpenList(int n){
+        return openList.containsKey(nodes.ID(n));
     }
 
     /**
@@ -70,8 +164,8 @@ public abstract class SearchAlgo {
      * @param n Node to check.
      * @return Path to node.
      */
-    protected String getPath(Node n){
-        pathCost = n.getCost();
-        return n.getPath();
+    protected String getPath(int n){
+        pathCost = nodes.getCost(n);
+        return nodes.getPath(n);
     }
 }
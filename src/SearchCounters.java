@@ -0,0 +1,93 @@
+/**
+ * Counters of the work of a search: expansions, duplicates (generated nodes dropped because their state was
+ * already reached at no higher cost), re-openings (closed states reached again at a lower cost),
+ * heap operations and heuristic evaluations. Generated nodes are counted by the node store (see SearchAlgo.counters).
+ * Each node store has its own counters, so searches on different threads never share them.
+ * Counting is off unless the JVM runs with -Dsearch.counters=true: ENABLED is a constant,
+ * so when it's false the JIT compiles the counting calls away, and they cost nothing.
+ */
+public class SearchCounters {
+
+    protected static final boolean ENABLED = Boolean.getBoolean("search.counters");
+    private long generated, expansions, duplicates, reopenings, heapOperations, heuristicEvaluations;
+
+    protected void expanded(){
+        if (ENABLED) expansions++;
+    }
+
+    protected void duplicate(){
+        if (ENABLED) duplicates++;
+    }
+
+    protected void reopened(){
+        if (ENABLED) reopenings++;
+    }
+
+    protected void heapOperation(){
+        if (ENABLED) heapOperations++;
+    }
+
+    protected void heuristicEvaluated(){
+        if (ENABLED) heuristicEvaluations++;
+    }
+
+    protected long generated(){
+        return generated;
+    }
+
+    protected long expansions(){
+        return expansions;
+    }
+
+    protected long duplicates(){
+        return duplicates;
+    }
+
+    protected long reopenings(){
+        return reopenings;
+    }
+
+    protected long heapOperations(){
+        return heapOperations;
+    }
+
+    protected long heuristicEvaluations(){
+        return heuristicEvaluations;
+    }
+
+    /**
+     * Add the counts of another search (or thread) to these.
+     *
+     * @param other The counters to add.
+     */
+    protected void add(SearchCounters other){
+        generated += other.generated;
+        expansions += other.expansions;
+        duplicates += other.duplicates;
+        reopenings += other.reopenings;
+        heapOperations += other.heapOperations;
+        heuristicEvaluations += other.heuristicEvaluations;
+    }
+
+    /**
+     * Add generated nodes (counted by the node stores).
+     *
+     * @param count Number of nodes.
+     */
+    protected void addGenerated(long count){
+        generated += count;
+    }
+
+    /**
+     * The counters as a JSON object.
+     *
+     * @param algorithm The name of the algorithm, included in the object.
+     * @return The JSON text, on one line.
+     */
+    protected String toJson(String algorithm){
+        return String.format("{\"algorithm\":\"%s\",\"generated\":%d,\"expansions\":%d,\"duplicates\":%d,"
+                        + "\"reopenings\":%d,\"heapOperations\":%d,\"heuristicEvaluations\":%d}",
+                algorithm.replace("\\", "\\\\").replace("\"", "\\\""), generated, expansions, duplicates,
+                reopenings, heapOperations, heuristicEvaluations);
+    }
+}
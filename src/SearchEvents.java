@@ -0,0 +1,149 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events of the search phases.
+ * Off unless the JVM runs with -Dsearch.events=true (and a recording, e.g. -XX:StartFlightRecording).
+ * Loading the JFR classes takes a few hundred milliseconds, much longer than a typical search,
+ * so when ENABLED is false the begin methods return null, no event class is ever loaded, and the events cost nothing.
+ * When it's true, an event is only filled in and committed if a recording has it enabled.
+ */
+public final class SearchEvents {
+
+    protected static final boolean ENABLED = Boolean.getBoolean("search.events");
+
+    private SearchEvents(){}
+
+    /**
+     * @return A begun map parse event, or null if events are off.
+     */
+    static MapParse beginMapParse(){
+        if (!ENABLED) return null;
+        MapParse event = new MapParse();
+        event.begin();
+        return event;
+    }
+
+    static void end(MapParse event, String algorithm, int rows, int cols){
+        if (event == null || !event.shouldCommit()) return;
+        event.algorithm = algorithm;
+        event.rows = rows;
+        event.cols = cols;
+        event.commit();
+    }
+
+    /**
+     * @return A begun tunnel Dijkstra event, or null if events are off.
+     */
+    static TunnelDijkstra beginTunnelDijkstra(){
+        if (!ENABLED) return null;
+        TunnelDijkstra event = new TunnelDijkstra();
+        event.begin();
+        return event;
+    }
+
+    static void end(TunnelDijkstra event, int entrances){
+        if (event == null || !event.shouldCommit()) return;
+        event.entrances = entrances;
+        event.commit();
+    }
+
+    /**
+     * @return A begun iteration event, or null if events are off.
+     */
+    static Iteration beginIteration(){
+        if (!ENABLED) return null;
+        Iteration event = new Iteration();
+        event.begin();
+        return event;
+    }
+
+    static void end(Iteration event, String algorithm, int iteration, int bound, int nodesCreated, boolean found){
+        if (event == null || !event.shouldCommit()) return;
+        event.algorithm = algorithm;
+        event.iteration = iteration;
+        event.bound = bound;
+        event.nodesCreated = nodesCreated;
+        event.found = found;
+        event.commit();
+    }
+
+    /**
+     * @return A begun solution event, or null if events are off.
+     */
+    static Solution beginSolution(){
+        if (!ENABLED) return null;
+        Solution event = new Solution();
+        event.begin();
+        return event;
+    }
+
+    static void end(Solution event, String algorithm, int cost, int nodesCreated, int maxSpace){
+        if (event == null || !event.shouldCommit()) return;
+        event.algorithm = algorithm;
+        event.cost = cost;
+        event.nodesCreated = nodesCreated;
+        event.maxSpace = maxSpace;
+        event.commit();
+    }
+
+    @Name("search.MapParse")
+    @Label("Map Parse")
+    @Category("Search")
+    @Description("Parsing an input: its header lines and its board.")
+    static final class MapParse extends Event {
+        @Label("Algorithm")
+        String algorithm;
+        @Label("Rows")
+        int rows;
+        @Label("Columns")
+        int cols;
+    }
+
+    @Name("search.TunnelDijkstra")
+    @Label("Tunnel Dijkstra")
+    @Category("Search")
+    @Description("Precomputing the heuristic's distances through the tunnels.")
+    static final class TunnelDijkstra extends Event {
+        @Label("Tunnel Entrances")
+        int entrances;
+    }
+
+    @Name("search.Iteration")
+    @Label("Iteration")
+    @Category("Search")
+    @Description("One iteration of an iterative deepening search (IDA*, DFID).")
+    static final class Iteration extends Event {
+        @Label("Algorithm")
+        String algorithm;
+        @Label("Iteration")
+        int iteration;
+        @Label("Bound")
+        @Description("The f-value threshold (IDA*) or the depth limit (DFID) of the iteration.")
+        int bound;
+        @Label("Nodes Created")
+        @Description("Nodes created by the search so far.")
+        int nodesCreated;
+        @Label("Found")
+        boolean found;
+    }
+
+    @Name("search.Solution")
+    @Label("Solution")
+    @Category("Search")
+    @Description("A whole search, ending with its path (or no path).")
+    static final class Solution extends Event {
+        @Label("Algorithm")
+        String algorithm;
+        @Label("Cost")
+        @Description("The cost of the path, or -1 if there is no path.")
+        int cost;
+        @Label("Nodes Created")
+        int nodesCreated;
+        @Label("Max Space")
+        int maxSpace;
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Receives every improved solution of an anytime search (ARA*, DFBnB) while it runs,
+ * each cheaper than the last. The search's own answer is the last one.
+ */
+public interface SolutionListener {
+
+    /**
+     * @param path    The path.
+     * @param cost    Its cost.
+     * @param bound   Bound on its suboptimality: the optimal cost is at least cost / bound.
+     * @param elapsed Time since the search started, in nanoseconds.
+     */
+    void improved(String path, int cost, double bound, long elapsed);
+}
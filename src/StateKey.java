@@ -0,0 +1,75 @@
+public final class StateKey {
+
+    /**
+     * Bit layout of a packed state key (low to high):
+     * bit 0 - supplied flag, bits 1-4 - direction code + 1 (0 if the direction isn't part of the state),
+     * bits 5-31 - y-coordinate, bits 32-62 - x-coordinate.
+     * Keys are never negative, so -1 can be used as an "empty" marker by hash tables.
+     */
+    private static final int DIR_SHIFT = 1, Y_SHIFT = 5, X_SHIFT = 32;
+    private static final long Y_MASK = 0x7FF_FFFFL;
+    /**
+     * The largest y-coordinate a key can hold.
+     */
+    protected static final int MAX_Y = (int) Y_MASK;
+
+    private StateKey(){}
+
+    /**
+     * Pack a state into a single long.
+     * Each state is defined by: x,y coordinates, and whether the robot is supplied at that point.
+     *
+     * @param x        x-coordinate.
+     * @param y        y-coordinate.
+     * @param supplied whether the robot is supplied.
+     * @return The packed key of the state.
+     */
+    protected static long pack(int x, int y, boolean supplied){
+        return ((long) x << X_SHIFT) | ((long) y << Y_SHIFT) | (supplied ? 1L : 0L);
+    }
+
+    /**
+     * Pack a state that also includes the direction of the move that produced it
+     * (which decides the legal next moves, see Map.move). Used by bidirectional search.
+     *
+     * @param x        x-coordinate.
+     * @param y        y-coordinate.
+     * @param supplied whether the robot is supplied.
+     * @param dir      direction code (see NodeStore).
+     * @return The packed key of the state.
+     */
+    protected static long pack(int x, int y, boolean supplied, byte dir){
+        return pack(x, y, supplied) | ((long) (dir + 1) << DIR_SHIFT);
+    }
+
+    protected static int x(long key){
+        return (int) (key >>> X_SHIFT);
+    }
+
+    protected static int y(long key){
+        return (int) ((key >>> Y_SHIFT) & Y_MASK);
+    }
+
+    protected static boolean supplied(long key){
+        return (key & 1L) != 0;
+    }
+
+    /**
+     * @return The direction code of a key packed with one, or -1.
+     */
+    protected static byte dir(long key){
+        return (byte) (((key >>> DIR_SHIFT) & 0xF) - 1);
+    }
+
+    /**
+     * Spread the bits of a key, for use as a hash code in open-addressing tables.
+     *
+     * @param key A packed key.
+     * @return A well-mixed 32-bit hash of the key.
+     */
+    protected static int hash(long key){
+        long h = key * 0x9E37_79B9_7F4A_7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
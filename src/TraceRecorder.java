@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Trace of a search, written to a text file by a background thread.
+ * The search thread records every expansion (state, g, f and the size of the open list)
+ * into a preallocated ring buffer, which costs a few array writes, and a snapshot of the whole open list
+ * every snapshot interval expansions. The writer thread drains the ring into the file.
+ * When the ring is full the search waits for the writer, so the trace is complete.
+ * Off unless the JVM runs with -Dsearch.trace=FILE; -Dsearch.trace.snapshots=N sets the snapshot interval
+ * (0 for no snapshots). The first search of the JVM is traced to FILE, the next ones to FILE.2, FILE.3...
+ * Trace lines are "x y supplied direction g f open-size" for an expansion,
+ * and "open" followed by the open list (as with the "with open" option) for a snapshot.
+ */
+public class TraceRecorder implements AutoCloseable {
+
+    private static final String FILE = System.getProperty("search.trace");
+    protected static final boolean ENABLED = FILE != null;
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 10_000;
+    private static final AtomicInteger traces = new AtomicInteger();
+    /**
+     * Records in the ring (a power of two), and how long the writer sleeps when the ring is empty.
+     */
+    private static final int CAPACITY = 1 << 16, MASK = CAPACITY - 1;
+    private static final long IDLE_NANOS = 100_000;
+    /**
+     * The open size of a record that stands for the next snapshot (in snapshots).
+     */
+    private static final int SNAPSHOT = -1;
+
+    private final long[] keys = new long[CAPACITY];
+    private final int[] gs = new int[CAPACITY], fs = new int[CAPACITY], opens = new int[CAPACITY];
+    /**
+     * Records written by the search thread, and records written to the file by the writer thread.
+     * The search thread publishes a record by moving head past it (with release),
+     * and the writer frees its slot by moving tail past it.
+     */
+    private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+    private final ConcurrentLinkedQueue<String> snapshots = new ConcurrentLinkedQueue<>();
+    private final int snapshotInterval;
+    private long expansions = 0;
+    private final Writer out;
+    private final Thread writer;
+    private final StringBuilder line = new StringBuilder();
+    private volatile boolean closed = false;
+    private volatile IOException failure = null;
+
+    /**
+     * Constructor. Starts the writer thread.
+     *
+     * @param out              Where to write the trace.
+     * @param snapshotInterval Expansions between snapshots of the open list, or 0 for none.
+     */
+    protected TraceRecorder(Writer out, int snapshotInterval){
+        this.out = out;
+        this.snapshotInterval = snapshotInterval;
+        this.writer = new Thread(this::drain, "trace-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Open the trace file of the next search, if tracing is on.
+     *
+     * @return The recorder, or null if tracing is off.
+     * @throws IOException              If the file can't be created.
+     * @throws IllegalArgumentException If the snapshot interval is negative.
+     */
+    protected static TraceRecorder open() throws IOException {
+        if (!ENABLED) return null;
+        int snapshotInterval = Integer.getInteger("search.trace.snapshots", DEFAULT_SNAPSHOT_INTERVAL);
+        if (snapshotInterval < 0) {
+            throw new IllegalArgumentException("Malformed snapshot interval: " + snapshotInterval);
+        }
+        int n = traces.incrementAndGet();
+        Path file = Path.of(n == 1 ? FILE : FILE + "." + n);
+        return new TraceRecorder(Files.newBufferedWriter(file, StandardCharsets.UTF_8), snapshotInterval);
+    }
+
+    /**
+     * Record an expansion (on the search thread).
+     *
+     * @param key      The packed key of the expanded state (see StateKey).
+     * @param g        Its cost.
+     * @param f        Its f-value.
+     * @param openSize The size of the open list.
+     * @return True iff a snapshot of the open list is due (see snapshot).
+     */
+    protected boolean expansion(long key, int g, int f, int openSize){
+        put(key, g, f, openSize);
+        return snapshotInterval > 0 && ++expansions % snapshotInterval == 0;
+    }
+
+    /**
+     * Record a snapshot of the open list (on the search thread).
+     *
+     * @param openList The open list, as printed by SearchAlgo.printOpenList.
+     */
+    protected void snapshot(String openList){
+        snapshots.add(openList);
+        put(0, 0, 0, SNAPSHOT);
+    }
+
+    private void put(long key, int g, int f, int openSize){
+        long h = head.getPlain();  // Only this thread writes head.
+        while (h - tail.get() == CAPACITY) {  // Full: wait for the writer.
+            if (failure != null) return;  // The writer stopped, reported by close.
+            Thread.yield();
+        }
+        int i = (int) h & MASK;
+        keys[i] = key; gs[i] = g; fs[i] = f; opens[i] = openSize;
+        head.setRelease(h + 1);
+    }
+
+    /**
+     * The writer thread: write the records as they come, until the recorder is closed and the ring is empty.
+     */
+    private void drain(){
+        try {
+            out.write("# x y supplied direction g f open-size, or open and the open list\n");
+            for (long t = tail.getPlain(); ; ) {
+                boolean done = closed;  // Read before head: every record was published before closing.
+                long h = head.getAcquire();
+                if (t == h) {
+                    if (done) break;
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+                for (; t < h; t++) write((int) t & MASK);
+                tail.setRelease(h);
+            }
+            out.flush();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void write(int i) throws IOException {
+        if (opens[i] == SNAPSHOT) {
+            out.write("open ");
+            out.write(snapshots.poll());
+            return;
+        }
+        long key = keys[i];
+        byte dir = StateKey.dir(key);
+        line.setLength(0);
+        line.append(StateKey.x(key)).append(' ').append(StateKey.y(key)).append(' ')
+                .append(StateKey.supplied(key) ? 1 : 0).append(' ')
+                .append(dir == -1 || dir == NodeStore.NO_DIR ? "-" : NodeStore.dirName(dir)).append(' ')
+                .append(gs[i]).append(' ').append(fs[i]).append(' ').append(opens[i]).append('\n');
+        out.append(line);
+    }
+
+    /**
+     * Wait for the writer to write every record, and close the file.
+     *
+     * @throws IOException If the trace couldn't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            out.close();
+        }
+        if (failure != null) throw failure;
+    }
+}
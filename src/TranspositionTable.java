@@ -0,0 +1,85 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for IDA*: the lowest cost (g) at which each state was reached in the current iteration.
+ * A state reached again at the same or a higher cost can be pruned, because its first visit
+ * had at least as much of the threshold left to search with.
+ * The table is direct-mapped (one entry per slot, by hash of the state key), so its memory never grows;
+ * when two states share a slot, the replacement policy decides which one is kept.
+ * Entries are stamped with the iteration they were written in, so starting a new iteration forgets them all in O(1).
+ */
+public class TranspositionTable {
+
+    /**
+     * Which entry to keep when a state's slot holds another state:
+     * ALWAYS replaces it (the newest entry, near the current search), CHEAPER only if the new cost is lower
+     * (entries near the root, whose pruning saves the largest subtrees).
+     */
+    protected enum Policy { ALWAYS, CHEAPER }
+
+    protected static final int DEFAULT_SIZE = 1 << 20, MAX_SIZE = 1 << 30;
+    protected static final int NOT_FOUND = Integer.MAX_VALUE;
+    private final long[] keys;
+    private final int[] costs, iterations;
+    private final int mask;
+    private final Policy policy;
+    private int iteration = 1;
+
+    /**
+     * Constructor.
+     *
+     * @param size   Number of entries (rounded up to a power of two, at most MAX_SIZE).
+     * @param policy Replacement policy.
+     */
+    protected TranspositionTable(int size, Policy policy){
+        int capacity = Integer.highestOneBit(Math.max(1, Math.min(size, MAX_SIZE) - 1)) << 1;
+        this.keys = new long[capacity];
+        this.costs = new int[capacity];
+        this.iterations = new int[capacity];  // 0: never written.
+        this.mask = capacity - 1;
+        this.policy = policy;
+    }
+
+    private int slot(long key){
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * The cost a state was reached at in this iteration.
+     *
+     * @param key The state key.
+     * @return The cost, or NOT_FOUND if the table doesn't hold it.
+     */
+    protected int get(long key){
+        int i = slot(key);
+        return iterations[i] == iteration && keys[i] == key ? costs[i] : NOT_FOUND;
+    }
+
+    /**
+     * Record that a state was reached at a cost, if the table doesn't already hold a lower one.
+     *
+     * @param key  The state key.
+     * @param cost The cost.
+     */
+    protected void put(long key, int cost){
+        int i = slot(key);
+        if (iterations[i] == iteration) {
+            if (keys[i] == key) {
+                if (cost >= costs[i]) return;
+            }
+            else if (policy == Policy.CHEAPER && cost >= costs[i]) return;
+        }
+        keys[i] = key; costs[i] = cost; iterations[i] = iteration;
+    }
+
+    /**
+     * Forget every entry (start a new iteration).
+     */
+    protected void clear(){
+        if (++iteration == 0) {  // Wrapped around: old stamps could match again.
+            Arrays.fill(iterations, 0);
+            iteration = 1;
+        }
+    }
+}